@@ -0,0 +1,64 @@
+package com.singlejade.bench;
+
+import jade.wrapper.AgentContainer;
+import jade.wrapper.AgentController;
+import jade.wrapper.StaleProxyException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Request/reply latency between two agents in one container: a RoundTripAgent asking the
+// GridAgent to supply energy, in the binary or the text message format. The O2A hand-over from
+// the benchmark thread is spread over a batch of round trips.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AclRoundTripBenchmark {
+    private static final int BATCH = 100;
+
+    @Param({"binary", "text"})
+    public String codec;
+
+    private AgentContainer container;
+    private AgentController requester;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, StaleProxyException {
+        BenchSupport.quietStdout();
+        container = BenchSupport.startPlatform();
+        container.createNewAgent("GridAgent", "com.singlejade.Grid", null).start();
+        requester = container.createNewAgent("RoundTrip", RoundTripAgent.class.getName(), new Object[] {"GridAgent", codec});
+        requester.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchSupport.stopPlatform(container);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public double roundTrip() throws StaleProxyException, InterruptedException {
+        RoundTripAgent.Batch batch = new RoundTripAgent.Batch(BATCH);
+        requester.putO2AObject(batch, AgentController.ASYNC);
+        batch.done.await();
+        return batch.checksum;
+    }
+}
@@ -0,0 +1,56 @@
+package com.singlejade.bench;
+
+import com.singlejade.BatteryFleet;
+import com.singlejade.StepLength;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// The Battery agent's charge and discharge, which go straight to its BatteryFleet, under a
+// steady stream of mixed requests that keeps the units moving between their SOC limits.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatteryFleetBenchmark {
+    private static final int REQUESTS = 1024;  // Power of two, cycled with a mask
+
+    @Param({"1", "16", "1024"})
+    public int units;
+
+    @Param({"PROPORTIONAL", "SOC_BALANCING", "PRIORITY"})
+    public BatteryFleet.Policy policy;
+
+    private BatteryFleet fleet;
+    private final double[] requests = new double[REQUESTS];  // > 0 charge, < 0 discharge, kWh
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fleet = BatteryFleet.uniform(units, 1000, 0.5, 20, 90, 0, StepLength.HOURLY, policy);
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < REQUESTS; i++) {
+            requests[i] = random.nextDouble(-250, 250);
+        }
+    }
+
+    @Benchmark
+    public double chargeOrDischarge() {
+        double amount = requests[next++ & (REQUESTS - 1)];
+        return amount > 0 ? fleet.charge(amount) : fleet.discharge(-amount);
+    }
+}
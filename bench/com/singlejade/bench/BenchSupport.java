@@ -0,0 +1,87 @@
+package com.singlejade.bench;
+
+import com.singlejade.EnergyProfile;
+import com.singlejade.Log;
+import jade.core.Profile;
+import jade.core.ProfileImpl;
+import jade.core.Runtime;
+import jade.wrapper.AgentContainer;
+import jade.wrapper.ControllerException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Shared setup for the benchmarks: synthetic profiles, a quiet stdout and an in-process JADE platform
+final class BenchSupport {
+    private BenchSupport() {
+    }
+
+    // Writes a profile of the given length by repeating the shipped 24-hour profile
+    static Path writeProfile(int rows) throws IOException {
+        EnergyProfile day = EnergyProfile.load(EnergyProfile.DEFAULT_PROFILE);
+        Path file = Files.createTempFile("profile-" + rows + "-", ".csv");
+        file.toFile().deleteOnExit();
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("Hour," + EnergyProfile.LOAD_COLUMN + "," + EnergyProfile.SOLAR_COLUMN + "," + EnergyProfile.WIND_COLUMN);
+            writer.newLine();
+            for (int hour = 0; hour < rows; hour++) {
+                writer.write(hour + "," + day.getLoad(hour) + "," + day.getSolar(hour) + "," + day.getWind(hour));
+                writer.newLine();
+            }
+        }
+        return file;
+    }
+
+    static Path tempFile(String prefix, String suffix) throws IOException {
+        Path file = Files.createTempFile(prefix, suffix);
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    // The agents print on every message; the strings are still built, but the terminal is kept out of the numbers
+    static void quietStdout() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Log.configure(Log.Level.DEBUG, false, 0, System.out);  // Lines are still formatted, then discarded
+    }
+
+    static AgentContainer startPlatform() throws IOException {
+        Profile profile = new ProfileImpl();
+        profile.setParameter(Profile.LOCAL_PORT, String.valueOf(freePort()));
+        return Runtime.instance().createMainContainer(profile);
+    }
+
+    static void stopPlatform(AgentContainer container) {
+        try {
+            container.getPlatformController().kill();
+        } catch (ControllerException e) {
+            e.printStackTrace();
+        }
+    }
+
+    static boolean isRunning(AgentContainer container, String agentName) {
+        try {
+            container.getAgent(agentName);
+            return true;
+        } catch (ControllerException e) {
+            return false;
+        }
+    }
+
+    static void awaitGone(AgentContainer container, String agentName) throws InterruptedException {
+        while (isRunning(container, agentName)) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.singlejade.bench;
+
+import com.singlejade.Dashboard;
+import com.singlejade.DecimatedSeries;
+import com.singlejade.StepRing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// The dashboard's cost per step. "offer" is what CentralAgent pays on its own thread; "offerAndDrain"
+// adds what the EDT pays to move the sample into the decimated series, drained 4096 at a time as a
+// timer tick would. Scores are nanoseconds per sample.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DashboardBenchmark {
+    private StepRing ring;
+    private DecimatedSeries series;
+    private final double[] row = new double[Dashboard.CHANNELS];
+    private long step;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        ring = new StepRing(1 << 17, Dashboard.CHANNELS);
+        series = new DecimatedSeries(Dashboard.CHANNELS, 2048);
+    }
+
+    private void next() {
+        step++;
+        for (int i = 0; i < row.length; i++) {
+            row[i] = (step * (i + 7919)) & 1023;
+        }
+    }
+
+    @Benchmark
+    public boolean offer() {
+        next();
+        boolean offered = ring.offer(step, row);
+        if ((step & 4095) == 0) {
+            ring.drain((s, values) -> { }, Integer.MAX_VALUE);  // Keep room without measuring the series
+        }
+        return offered;
+    }
+
+    @Benchmark
+    public boolean offerAndDrain() {
+        next();
+        boolean offered = ring.offer(step, row);
+        if ((step & 4095) == 0) {
+            ring.drain(series::add, Integer.MAX_VALUE);
+        }
+        return offered;
+    }
+}
@@ -0,0 +1,98 @@
+package com.singlejade.bench;
+
+import com.singlejade.BatteryState;
+import com.singlejade.DispatchKernel;
+import com.singlejade.EnergyProfile;
+import com.singlejade.ResultSink;
+import com.singlejade.SimulationConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Hourly dispatch without agents: what CentralAgent.handleHour does once its inputs are in,
+// alone, with the result row written through the ResultSink, and as a whole year in one call.
+// Scores are hours per second.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DispatchBenchmark {
+    private static final int HOURS = 8760;
+
+    private final double[] load = new double[HOURS];
+    private final double[] solar = new double[HOURS];
+    private final double[] wind = new double[HOURS];
+    private final double[] result = new double[DispatchKernel.RESULT_SIZE];
+    private final double[] totals = new double[DispatchKernel.TOTALS_SIZE];
+    private final double[] row = new double[8];
+    private final BatteryState battery = new BatteryState(1000, 500);
+    private DispatchKernel kernel;
+    private ResultSink sink;
+    private int hour;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        EnergyProfile profile = EnergyProfile.read(BenchSupport.writeProfile(HOURS).toString());
+        profile.copy(0, load, solar, wind);
+        kernel = new DispatchKernel(20, 90);
+        SimulationConfig config = new SimulationConfig().set("output", BenchSupport.tempFile("dispatch-", ".csv").toString());
+        sink = ResultSink.fromConfig(config, new String[] {"Hour", "Load", "SolarGen", "WindGen", "BatteryUsed", "GridUsed", "BatterySOC", "SurplusToGrid"});
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        sink.close();
+    }
+
+    @Benchmark
+    public double step() {
+        int h = nextHour();
+        kernel.step(load[h], solar[h], wind[h], battery, result);
+        return result[DispatchKernel.GRID_IMPORT];
+    }
+
+    @Benchmark
+    public double stepAndLog() {
+        int h = nextHour();
+        kernel.step(load[h], solar[h], wind[h], battery, result);
+        row[0] = h;
+        row[1] = load[h];
+        row[2] = solar[h];
+        row[3] = wind[h];
+        row[4] = result[DispatchKernel.BATTERY_DISCHARGED];
+        row[5] = result[DispatchKernel.GRID_IMPORT];
+        row[6] = battery.getSOC();
+        row[7] = result[DispatchKernel.GRID_EXPORT];
+        sink.write(row);
+        return row[5];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(HOURS)
+    public double simulateYear() {
+        battery.set(1000, 500);
+        kernel.simulate(load, solar, wind, 0, HOURS, battery, result, totals);
+        return totals[DispatchKernel.TOTAL_IMPORT];
+    }
+
+    private int nextHour() {
+        int h = hour;
+        hour = h + 1 == HOURS ? 0 : h + 1;
+        return h;
+    }
+}
@@ -0,0 +1,82 @@
+package com.singlejade.bench;
+
+import jade.wrapper.AgentContainer;
+import jade.wrapper.StaleProxyException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// A whole fast-forwarded year with all agents in one container: each invocation starts a fresh
+// CentralAgent and BatteryAgent against long-lived Load, Solar, Wind and Grid agents and waits for
+// CentralAgent to finish, result log included. Scores are simulated hours per second.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EndToEndBenchmark {
+    private static final int HOURS = 8760;
+
+    @Param({"8760", "0"})
+    public int prefetch;
+
+    @Param({"binary", "text"})
+    public String codec;
+
+    private AgentContainer container;
+    private Object[] centralArgs;
+    private Object[] batteryArgs;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, StaleProxyException {
+        BenchSupport.quietStdout();
+        container = BenchSupport.startPlatform();
+        Object[] inputArgs = {"profile=" + BenchSupport.writeProfile(HOURS)};
+        container.createNewAgent("LoadAgent", "com.singlejade.Load", inputArgs).start();
+        container.createNewAgent("SolarAgent", "com.singlejade.SolarGenerator", inputArgs).start();
+        container.createNewAgent("WindAgent", "com.singlejade.WindGenerator", inputArgs).start();
+        container.createNewAgent("GridAgent", "com.singlejade.Grid", null).start();
+        centralArgs = new Object[] {
+                "clock=fastforward", "hours=" + HOURS, "prefetch=" + prefetch, "codec=" + codec,
+                "output=" + BenchSupport.tempFile("energy-log-", ".csv")
+        };
+        batteryArgs = new Object[] {1000.0, 0.5, 20.0, 90.0};
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchSupport.stopPlatform(container);
+    }
+
+    @TearDown(Level.Invocation)
+    public void stopBattery() throws Exception {
+        if (BenchSupport.isRunning(container, "BatteryAgent")) {
+            container.getAgent("BatteryAgent").kill();
+            BenchSupport.awaitGone(container, "BatteryAgent");
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(HOURS)
+    public void simulateYear() throws StaleProxyException, InterruptedException {
+        // CentralAgent first, so it is waiting when the battery announces itself
+        container.createNewAgent("CentralAgent", "com.singlejade.CentralAgent", centralArgs).start();
+        container.createNewAgent("BatteryAgent", "com.singlejade.Battery", batteryArgs).start();
+        BenchSupport.awaitGone(container, "CentralAgent");
+    }
+}
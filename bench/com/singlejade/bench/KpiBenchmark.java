@@ -0,0 +1,54 @@
+package com.singlejade.bench;
+
+import com.singlejade.KpiEngine;
+import com.singlejade.Log;
+import com.singlejade.StepLength;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// What CentralAgent adds per step for its KPIs: one record() into the day, month and run windows and
+// the 1 h and 24 h import peaks, with day and month roll-overs as they come. One-minute steps make the
+// peak deques 60 and 1440 entries long. Logging is at warn level, so the day and month lines are not
+// formatted. Scores are nanoseconds per step.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KpiBenchmark {
+    @Param({"60", "1"})
+    public int stepMinutes;
+
+    private KpiEngine kpis;
+    private int step;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Log.configure(Log.Level.WARN, false, 0, System.out);
+        kpis = new KpiEngine(new StepLength(stepMinutes), 1, 24);
+        kpis.setCapacity(1000);
+    }
+
+    @Benchmark
+    public void record() {
+        int phase = step % 1440;  // A daily shape, so the deques both grow and drain
+        double load = 400 + (phase * 7919 % 300);
+        double generation = phase < 720 ? phase : 1440 - phase;
+        double imported = Math.max(0, load - generation);
+        double exported = Math.max(0, generation - load);
+        kpis.record(step++, load, generation, imported, exported, 0, 0, imported * 0.2, false);
+    }
+}
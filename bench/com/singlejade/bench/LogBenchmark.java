@@ -0,0 +1,63 @@
+package com.singlejade.bench;
+
+import com.singlejade.Log;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+// One of CentralAgent's per-hour lines at each log setting, printed to a discarding stream:
+// "quiet" is the disabled statement, "sync" prints on the calling thread, "async" hands the line
+// to the ring. The old concatenation into System.out.println is the baseline. Scores are
+// nanoseconds per line.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogBenchmark {
+    @Param({"quiet", "sync", "async"})
+    public String mode;
+
+    private PrintStream discard;
+    private int hour;
+    private double amount = 123.456;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        discard = new PrintStream(OutputStream.nullOutputStream());
+        Log.configure(mode.equals("quiet") ? Log.Level.WARN : Log.Level.DEBUG, mode.equals("async"), 16384, discard);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Log.flush();
+        Log.configure(Log.Level.DEBUG, false, 0, System.out);
+    }
+
+    @Benchmark
+    public void log() {
+        hour = (hour + 1) % 8760;
+        Log.debug("Battery used for hour {}: {} kWh", hour, amount);
+    }
+
+    @Benchmark
+    public void concatenate() {
+        hour = (hour + 1) % 8760;
+        discard.println("Battery used for hour " + hour + ": " + amount + " kWh");
+    }
+}
@@ -0,0 +1,47 @@
+package com.singlejade.bench;
+
+import com.singlejade.AgentMetrics;
+import com.singlejade.MessageCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// What CentralAgent adds per request for its metrics: one round-trip record, with and without
+// the two nanoTime reads around it. Scores are nanoseconds per request.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+    private AgentMetrics metrics;
+    private long latency;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        metrics = new AgentMetrics("bench", 0);
+    }
+
+    @Benchmark
+    public void record() {
+        latency = (latency + 7919) & 0xFFFFF;  // Spread over about a millisecond of buckets
+        metrics.message(MessageCodec.Opcode.SUPPLY).recordRoundTrip(latency);
+    }
+
+    @Benchmark
+    public void recordTimed() {
+        long start = System.nanoTime();
+        metrics.message(MessageCodec.Opcode.SUPPLY).recordRoundTrip(System.nanoTime() - start);
+    }
+}
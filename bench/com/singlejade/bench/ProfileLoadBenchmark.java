@@ -0,0 +1,57 @@
+package com.singlejade.bench;
+
+import com.singlejade.EnergyProfile;
+import com.singlejade.ProfileConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Time to get a usable EnergyProfile from the CSV (parsed) or from a converted ProfileStore
+// (mapped) as the profile grows from one day to a million hours.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProfileLoadBenchmark {
+    @Param({"24", "8760", "100000", "1000000"})
+    public int rows;
+
+    @Param({"csv", "bin"})
+    public String format;
+
+    private String file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchSupport.quietStdout();  // The CSV parser reports every load
+        Path csv = BenchSupport.writeProfile(rows);
+        if (format.equals("bin")) {
+            Path bin = BenchSupport.tempFile("profile-" + rows + "-", ".bin");
+            ProfileConverter.convert(csv.toString(), bin.toString());
+            file = bin.toString();
+        } else {
+            file = csv.toString();
+        }
+    }
+
+    @Benchmark
+    public double load() throws IOException {
+        EnergyProfile profile = EnergyProfile.read(file);
+        return profile.getLoad(rows - 1);  // Touch the last row, so a mapped file is really read
+    }
+}
@@ -0,0 +1,68 @@
+package com.singlejade.bench;
+
+import com.singlejade.MessageCodec;
+import jade.core.AID;
+import jade.core.Agent;
+import jade.core.behaviours.CyclicBehaviour;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+
+import java.util.concurrent.CountDownLatch;
+
+// Requesting side of AclRoundTripBenchmark. The benchmark thread hands over a Batch through O2A;
+// the agent runs that many request/reply exchanges with the target agent from its own thread
+// and releases the batch when the last reply is in.
+public class RoundTripAgent extends Agent {
+    static final class Batch {
+        final int roundTrips;
+        final CountDownLatch done = new CountDownLatch(1);
+        double checksum;
+
+        Batch(int roundTrips) {
+            this.roundTrips = roundTrips;
+        }
+    }
+
+    private AID target;
+    private MessageCodec codec;
+    private long requestCounter;
+
+    public RoundTripAgent() {
+        // Enabled before the agent starts, so a batch handed over while setup() is still running is not dropped
+        setEnabledO2ACommunication(true, 0);
+    }
+
+    @Override
+    protected void setup() {
+        // Arguments: target agent name, "binary" or "text"
+        Object[] args = getArguments();
+        target = new AID(args[0].toString(), AID.ISLOCALNAME);
+        codec = new MessageCodec(!args[1].toString().equals("text"));
+
+        addBehaviour(new CyclicBehaviour() {
+            @Override
+            public void action() {
+                Object batch = getO2AObject();
+                if (batch == null) {
+                    block();
+                } else {
+                    run((Batch) batch);
+                }
+            }
+        });
+    }
+
+    private void run(Batch batch) {
+        for (int i = 0; i < batch.roundTrips; i++) {
+            ACLMessage request = new ACLMessage(ACLMessage.REQUEST);
+            request.addReceiver(target);
+            codec.encodeRequest(request, MessageCodec.Opcode.SUPPLY, 0, 0, i);
+            String replyWith = "rt-" + (++requestCounter);
+            request.setReplyWith(replyWith);
+            send(request);
+            ACLMessage reply = blockingReceive(MessageTemplate.MatchInReplyTo(replyWith));
+            batch.checksum += codec.decodeReply(reply, MessageCodec.Opcode.SUPPLY);
+        }
+        batch.done.countDown();
+    }
+}
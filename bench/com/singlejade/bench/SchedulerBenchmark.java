@@ -0,0 +1,60 @@
+package com.singlejade.bench;
+
+import com.singlejade.BatteryState;
+import com.singlejade.EnergyProfile;
+import com.singlejade.RollingHorizonScheduler;
+import com.singlejade.SimulationConfig;
+import com.singlejade.Tariff;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// One rolling-horizon solve of the DP battery scheduler, as CentralAgent runs it every hour
+// with scheduler=dp, walking through a year of forecast windows.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchedulerBenchmark {
+    private static final int HOURS = 8760;
+
+    @Param({"48"})
+    public int horizon;
+
+    @Param({"1000", "100000"})
+    public int states;
+
+    private final double[] load = new double[HOURS];
+    private final double[] solar = new double[HOURS];
+    private final double[] wind = new double[HOURS];
+    private final BatteryState battery = new BatteryState(1000, 500);
+    private RollingHorizonScheduler scheduler;
+    private int hour;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        EnergyProfile.read(BenchSupport.writeProfile(HOURS).toString()).copy(0, load, solar, wind);
+        scheduler = new RollingHorizonScheduler(horizon, states, Tariff.fromConfig(new SimulationConfig()));
+    }
+
+    @Benchmark
+    public double plan() {
+        int h = hour;
+        hour = h + horizon >= HOURS ? 0 : h + 1;
+        return scheduler.plan(load, solar, wind, h, horizon, h, battery, 20, 90);
+    }
+}
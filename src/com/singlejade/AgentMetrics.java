@@ -0,0 +1,87 @@
+package com.singlejade;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+// Message and tick statistics of one requesting agent, published as MBeans under
+// com.singlejade:type=Messages,agent=<agent>,name=<message type> and com.singlejade:type=Ticks,agent=<agent>.
+// Statistics are indexed by MessageCodec opcode, so recording does no lookup.
+public class AgentMetrics {
+    private final String agentName;
+    private final MessageStats[] messages = new MessageStats[MessageCodec.Opcode.values().length];
+    private final TickStats ticks;
+    private final List<ObjectName> registered = new ArrayList<>();
+
+    public AgentMetrics(String agentName, long tickPeriodMillis) {
+        this.agentName = agentName;
+        for (MessageCodec.Opcode opcode : MessageCodec.Opcode.values()) {
+            messages[opcode.ordinal()] = new MessageStats(opcode.name());
+        }
+        this.ticks = new TickStats(tickPeriodMillis);
+    }
+
+    public MessageStats message(MessageCodec.Opcode opcode) {
+        return messages[opcode.ordinal()];
+    }
+
+    public TickStats ticks() {
+        return ticks;
+    }
+
+    public void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (MessageStats stats : messages) {
+                register(server, new ObjectName("com.singlejade:type=Messages,agent=" + agentName + ",name=" + stats.getMessageType()), stats);
+            }
+            register(server, new ObjectName("com.singlejade:type=Ticks,agent=" + agentName), ticks);
+        } catch (JMException e) {
+            Log.warn("Could not publish metrics over JMX: {}", e.getMessage());
+        }
+    }
+
+    // Publishes another view of this agent as com.singlejade:type=<type>,agent=<agent>
+    public void publish(String type, Object bean) {
+        try {
+            register(ManagementFactory.getPlatformMBeanServer(), new ObjectName("com.singlejade:type=" + type + ",agent=" + agentName), bean);
+        } catch (JMException e) {
+            Log.warn("Could not publish {} over JMX: {}", type, e.getMessage());
+        }
+    }
+
+    private void register(MBeanServer server, ObjectName name, Object bean) throws JMException {
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);  // Left over from an earlier agent of the same name
+        }
+        server.registerMBean(bean, name);
+        registered.add(name);
+    }
+
+    public void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                // Already gone
+            }
+        }
+        registered.clear();
+    }
+
+    // One line per message type that was used, then the ticks
+    public String summary() {
+        StringBuilder summary = new StringBuilder("Message metrics for " + agentName + ":");
+        for (MessageStats stats : messages) {
+            if (stats.getCount() > 0 || stats.getTimeouts() > 0 || stats.getMismatches() > 0) {
+                summary.append(System.lineSeparator()).append("  ").append(stats.summary());
+            }
+        }
+        summary.append(System.lineSeparator()).append("  ").append(ticks.summary());
+        return summary.toString();
+    }
+}
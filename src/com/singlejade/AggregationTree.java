@@ -0,0 +1,129 @@
+package com.singlejade;
+
+import jade.wrapper.AgentContainer;
+import jade.wrapper.StaleProxyException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Builds a tree of Aggregator agents over many Load agents: leaves are grouped fanIn at a time
+// into feeders, feeders into substations, and so on until one root named "LoadAgent" remains,
+// so each step costs log_fanIn(leaves) hops instead of one CentralAgent request per leaf.
+// With "devicesPerHost=N" the leaves run as Load devices inside DeviceHost agents, N per agent
+// thread, instead of one Load agent each. Generation is aggregated the same way, with solar or
+// wind units as leaves under a root named "SolarAgent" or "WindAgent".
+public class AggregationTree {
+    private static final String[] LEVEL_NAMES = {"feeder", "substation", "zone", "region"};
+
+    private AggregationTree() {
+    }
+
+    // Starts leaves Load agents and the aggregators above them, returns the number of levels
+    public static int build(AgentContainer container, String rootName, int leaves, int fanIn, SimulationConfig config) throws StaleProxyException {
+        return build(container, "", rootName, "root", leaves, leaves, fanIn, config);
+    }
+
+    // As above, with agent names prefixed (so trees in several containers do not clash) and each
+    // leaf scaled against totalLeaves, the number of leaves across all the trees of the run
+    public static int build(AgentContainer container, String prefix, String rootName, String rootLevel, int leaves, int totalLeaves,
+                            int fanIn, SimulationConfig config) throws StaleProxyException {
+        if (fanIn < 2) {
+            throw new IllegalArgumentException("Fan-in must be at least 2: " + fanIn);
+        }
+
+        // Each household gets an equal share of the profile, so the tree total matches the profile
+        String scale = "scale=" + config.getDouble("loadScale", 1.0 / totalLeaves);
+        int perHost = config.getInt("devicesPerHost", 0);
+        List<String> layer = new ArrayList<>(leaves);
+        if (perHost > 0) {
+            for (int first = 0; first < leaves; first += perHost) {
+                String name = prefix + "Devices-" + layer.size();
+                container.createNewAgent(name, "com.singlejade.DeviceHost",
+                        withArguments(config, scale, "devices=" + Math.min(perHost, leaves - first))).start();
+                layer.add(name);
+            }
+            Log.info("Hosting {} Load devices in {} DeviceHost agents", leaves, layer.size());
+        } else {
+            for (int i = 0; i < leaves; i++) {
+                String name = prefix + "Load-" + i;
+                container.createNewAgent(name, "com.singlejade.Load", withArguments(config, scale)).start();
+                layer.add(name);
+            }
+        }
+
+        return buildLevels(container, prefix, "", rootName, rootLevel, layer, fanIn, config);
+    }
+
+    // Starts units generator agents of the given class, each with an equal share of the profile, and
+    // the aggregators above them; levels are named after the leaves ("solar-feeder", ...) so their
+    // timings are reported apart from the load tree's. Returns the number of levels.
+    public static int buildGeneration(AgentContainer container, String rootName, String leafClass, String leafName, int units,
+                                      int fanIn, SimulationConfig config) throws StaleProxyException {
+        if (fanIn < 2) {
+            throw new IllegalArgumentException("Fan-in must be at least 2: " + fanIn);
+        }
+        String levelPrefix = leafName.toLowerCase() + "-";
+        String scale = "scale=" + (1.0 / units);
+        List<String> layer = new ArrayList<>(units);
+        for (int i = 0; i < units; i++) {
+            String name = leafName + "-" + i;
+            container.createNewAgent(name, leafClass, withArguments(config, scale)).start();
+            layer.add(name);
+        }
+        return buildLevels(container, "", levelPrefix, rootName, levelPrefix + "root", layer, fanIn, config);
+    }
+
+    private static int buildLevels(AgentContainer container, String prefix, String levelPrefix, String rootName, String rootLevel,
+                                   List<String> layer, int fanIn, SimulationConfig config) throws StaleProxyException {
+        int levels = levels(layer.size(), fanIn);
+        int level = 0;
+        while (layer.size() > fanIn) {
+            String levelName = levelPrefix + (level < LEVEL_NAMES.length ? LEVEL_NAMES[level] : "level-" + level);
+            List<String> parents = new ArrayList<>();
+            for (int start = 0; start < layer.size(); start += fanIn) {
+                String name = prefix + levelName + "-" + parents.size();
+                startAggregator(container, name, aggregatorArguments(levelName, layer.subList(start, Math.min(layer.size(), start + fanIn)),
+                        level + 1, levels, config));
+                parents.add(name);
+            }
+            Log.info("Aggregation level {}: {} aggregators", levelName, parents.size());
+            layer = parents;
+            level++;
+        }
+        startAggregator(container, rootName, aggregatorArguments(rootLevel, layer, levels, levels, config));
+        return level + 1;
+    }
+
+    private static Object[] withArguments(SimulationConfig config, String... extra) {
+        Object[] args = config.toArguments();
+        int length = args.length;
+        args = Arrays.copyOf(args, length + extra.length);
+        System.arraycopy(extra, 0, args, length, extra.length);
+        return args;
+    }
+
+    // Levels of aggregators over the given number of leaves, the root included
+    static int levels(int leaves, int fanIn) {
+        int levels = 1;
+        for (int layer = leaves; layer > fanIn; layer = (layer + fanIn - 1) / fanIn) {
+            levels++;
+        }
+        return levels;
+    }
+
+    // Arguments for an aggregator height levels above the leaves of a tree of treeHeight levels. Its
+    // timeouts are height / (treeHeight + 1) of CentralAgent's "requestTimeoutMs" and "rangeTimeoutMs",
+    // so every node gives up on its children before its parent gives up on it
+    static Object[] aggregatorArguments(String level, List<String> children, int height, int treeHeight, SimulationConfig config) {
+        return new Object[] {
+                "level=" + level, "children=" + String.join(",", children),
+                "timeoutMs=" + config.getLong("requestTimeoutMs", 2000) * height / (treeHeight + 1),
+                "rangeTimeoutMs=" + config.getLong("rangeTimeoutMs", 30000) * height / (treeHeight + 1)
+        };
+    }
+
+    private static void startAggregator(AgentContainer container, String name, Object[] args) throws StaleProxyException {
+        container.createNewAgent(name, "com.singlejade.Aggregator", args).start();
+    }
+}
@@ -0,0 +1,284 @@
+package com.singlejade;
+
+import jade.core.AID;
+import jade.core.Agent;
+import jade.core.behaviours.CyclicBehaviour;
+import jade.lang.acl.ACLMessage;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Inner node of an aggregation tree (e.g. feeder -> substation -> central). A request from the
+// parent is forwarded to every child at once and the numeric replies are summed, element-wise for
+// ProfileBlock ranges, into one reply upward. Requests are tracked by reply-with, so several can be
+// in flight together. The node answers under its own name, so a tree rooted at "LoadAgent" looks
+// like a single Load agent to CentralAgent. Checkpoint state of stateful leaves (generator units)
+// is passed up as one vector of [length, values...] per child in child order, and a restore is
+// split the same way and handed back to each child. A request whose children do not all answer
+// within its timeout is answered with FAILURE and dropped, so the parent never waits on a lost child;
+// replies that arrive later are ignored.
+//
+// Arguments: "children=Load-0,Load-1,..." "level=feeder" "timeoutMs=1000" "rangeTimeoutMs=15000"
+public class Aggregator extends Agent {
+    // Per-level timings shared by the aggregators of one JVM: {requests, total nanos, max nanos, child messages, timeouts}
+    private static final Map<String, AtomicLong[]> LEVEL_STATS = new ConcurrentHashMap<>();
+
+    private AID[] children;
+    private final Map<String, Integer> childIndex = new HashMap<>();
+    private String level;
+    private long timeoutNanos;
+    private long rangeTimeoutNanos;  // Ranges and checkpoints move a whole horizon per request
+    private long requestCounter;
+    private final Map<String, Pending> pending = new HashMap<>();
+    private final MessageCodec codec = new MessageCodec(true);  // Replies follow the format of each request
+
+    // One request from the parent waiting for its children
+    private static class Pending {
+        final ACLMessage request;
+        final MessageCodec.Opcode command;
+        final long startNanos = System.nanoTime();
+        final long deadlineNanos;
+        int outstanding;
+        int performative = ACLMessage.INFORM;
+        double sum;
+        double[] block;      // Summed range when the children answer with ProfileBlocks
+        double[][] states;   // Each child's state for a SNAPSHOT_STATE
+        int firstStep;
+        boolean failed;
+
+        Pending(ACLMessage request, MessageCodec.Opcode command, int outstanding, long timeoutNanos) {
+            this.request = request;
+            this.command = command;
+            this.outstanding = outstanding;
+            this.deadlineNanos = startNanos + timeoutNanos;
+        }
+    }
+
+    @Override
+    protected void setup() {
+        SimulationConfig config = SimulationConfig.fromArguments(getArguments());
+        level = config.getString("level", "aggregator");
+        timeoutNanos = config.getLong("timeoutMs", 2000) * 1_000_000L;
+        rangeTimeoutNanos = config.getLong("rangeTimeoutMs", 30000) * 1_000_000L;
+        String[] childNames = config.getString("children", "").split(",");
+        children = new AID[childNames.length];
+        for (int i = 0; i < childNames.length; i++) {
+            children[i] = new AID(childNames[i].trim(), AID.ISLOCALNAME);
+            childIndex.put(childNames[i].trim(), i);
+        }
+        LEVEL_STATS.computeIfAbsent(level, l -> new AtomicLong[] { new AtomicLong(), new AtomicLong(), new AtomicLong(), new AtomicLong(), new AtomicLong() });
+        Log.info("Aggregator {} ({}) initialized with {} children.", getLocalName(), level, children.length);
+
+        addBehaviour(new CyclicBehaviour() {
+            @Override
+            public void action() {
+                ACLMessage msg = receive();
+                if (msg == null) {
+                    long wait = expireOverdue();
+                    if (wait > 0) {
+                        block(wait);
+                    } else {
+                        block();
+                    }
+                } else if (msg.getPerformative() == ACLMessage.REQUEST) {
+                    forward(msg);
+                } else if (msg.getInReplyTo() != null && pending.containsKey(msg.getConversationId())) {
+                    collect(msg);
+                }
+            }
+        });
+    }
+
+    private void forward(ACLMessage request) {
+        String conversationId = getLocalName() + "-" + (++requestCounter);
+        MessageCodec.Opcode command = codec.decode(request) ? codec.opcode() : null;
+        if (command == MessageCodec.Opcode.RESTORE_STATE) {
+            restore(request, conversationId, codec.vector());
+            return;
+        }
+        Pending started = new Pending(request, command, children.length, timeoutFor(command));
+        if (command == MessageCodec.Opcode.SNAPSHOT_STATE) {
+            started.states = new double[children.length][];
+        }
+        pending.put(conversationId, started);
+
+        ACLMessage childRequest = new ACLMessage(ACLMessage.REQUEST);
+        for (AID child : children) {
+            childRequest.addReceiver(child);
+        }
+        childRequest.setConversationId(conversationId);
+        childRequest.setReplyWith(conversationId);
+        if (request.hasByteSequenceContent()) {
+            childRequest.setByteSequenceContent(request.getByteSequenceContent());
+        } else {
+            childRequest.setContent(request.getContent());
+        }
+        send(childRequest);
+    }
+
+    // Hands each child its part of a combined state; a vector that does not split into one part per
+    // child is refused
+    private void restore(ACLMessage request, String conversationId, double[] combined) {
+        double[][] parts = new double[children.length][];
+        int at = 0;
+        for (int i = 0; i < children.length; i++) {
+            int length = at < combined.length ? (int) combined[at] : -1;
+            if (length < 0 || at + 1 + length > combined.length) {
+                break;
+            }
+            parts[i] = Arrays.copyOfRange(combined, at + 1, at + 1 + length);
+            at += 1 + length;
+        }
+        if (at != combined.length || parts[children.length - 1] == null) {
+            ACLMessage refusal = request.createReply();
+            refusal.setPerformative(ACLMessage.FAILURE);
+            refusal.setContent("State does not fit " + children.length + " children");
+            send(refusal);
+            Log.warn("Aggregator {} cannot split a state of {} values over {} children", getLocalName(), combined.length, children.length);
+            return;
+        }
+
+        pending.put(conversationId, new Pending(request, MessageCodec.Opcode.RESTORE_STATE, children.length, rangeTimeoutNanos));
+        for (int i = 0; i < children.length; i++) {
+            ACLMessage childRequest = new ACLMessage(ACLMessage.REQUEST);
+            childRequest.addReceiver(children[i]);
+            childRequest.setConversationId(conversationId);
+            childRequest.setReplyWith(conversationId);
+            codec.encodeVector(childRequest, MessageCodec.Opcode.RESTORE_STATE, parts[i]);
+            send(childRequest);
+        }
+    }
+
+    private void collect(ACLMessage reply) {
+        Pending request = pending.get(reply.getConversationId());
+        if (reply.getPerformative() == ACLMessage.INFORM || reply.getPerformative() == ACLMessage.PROPOSE
+                || reply.getPerformative() == ACLMessage.CONFIRM) {
+            request.performative = reply.getPerformative();
+            if (request.states != null) {
+                Integer child = childIndex.get(reply.getSender().getLocalName());
+                if (child != null && codec.decode(reply) && codec.opcode() == MessageCodec.Opcode.AGENT_STATE) {
+                    request.states[child] = codec.vector();
+                } else {
+                    request.failed = true;
+                }
+            } else if (reply.hasByteSequenceContent() && ProfileBlock.isBlock(reply.getByteSequenceContent())) {
+                byte[] block = reply.getByteSequenceContent();
+                if (request.block == null) {
+                    request.firstStep = ProfileBlock.firstStep(block);
+                    request.block = new double[ProfileBlock.count(block)];
+                }
+                addBlock(block, request.block);
+            } else {
+                double value = codec.decodeReply(reply, request.command);
+                if (Double.isNaN(value)) {
+                    request.failed = true;  // Answer to some other command
+                } else {
+                    request.sum += value;
+                }
+            }
+        } else {
+            request.failed = true;
+            Log.warn("Aggregator {} got {} from {}", getLocalName(), ACLMessage.getPerformative(reply.getPerformative()),
+                    reply.getSender().getLocalName());
+        }
+
+        if (--request.outstanding == 0) {
+            pending.remove(reply.getConversationId());
+            ACLMessage answer = request.request.createReply();
+            answer.setPerformative(request.failed ? ACLMessage.FAILURE : request.performative);
+            if (request.states != null && !request.failed) {
+                codec.decode(request.request);
+                codec.encodeVectorReply(answer, combine(request.states));  // Same format as the parent's request
+            } else if (request.block != null) {
+                double[] values = request.block;
+                answer.setByteSequenceContent(ProfileBlock.encode(request.firstStep, values.length, step -> values[step - request.firstStep]));
+            } else if (codec.decode(request.request)) {
+                codec.encodeReply(answer, request.sum);  // Same opcode and format as the parent's request
+            } else {
+                answer.setContent(String.valueOf(request.sum));
+            }
+            send(answer);
+            // Child-facing traffic: one delivery per child out and one reply per child back
+            record(System.nanoTime() - request.startNanos, 2L * children.length);
+        }
+    }
+
+    private long timeoutFor(MessageCodec.Opcode command) {
+        if (command == MessageCodec.Opcode.GET_LOAD_RANGE || command == MessageCodec.Opcode.GET_ENERGY_RANGE
+                || command == MessageCodec.Opcode.SNAPSHOT_STATE) {
+            return rangeTimeoutNanos;
+        }
+        return timeoutNanos;
+    }
+
+    // Answers every request past its deadline with FAILURE and drops it; returns the milliseconds
+    // until the next deadline, or 0 when nothing is pending
+    private long expireOverdue() {
+        long now = System.nanoTime();
+        long next = Long.MAX_VALUE;
+        for (Iterator<Pending> it = pending.values().iterator(); it.hasNext(); ) {
+            Pending request = it.next();
+            if (now - request.deadlineNanos >= 0) {
+                it.remove();
+                ACLMessage answer = request.request.createReply();
+                answer.setPerformative(ACLMessage.FAILURE);
+                answer.setContent("Timed out waiting for " + request.outstanding + " of " + children.length + " children");
+                send(answer);
+                Log.warn("Aggregator {} timed out waiting for {} of {} children", getLocalName(), request.outstanding, children.length);
+                LEVEL_STATS.get(level)[4].incrementAndGet();
+            } else {
+                next = Math.min(next, request.deadlineNanos - now);
+            }
+        }
+        return next == Long.MAX_VALUE ? 0 : next / 1_000_000L + 1;
+    }
+
+    private static double[] combine(double[][] states) {
+        int length = 0;
+        for (double[] state : states) {
+            length += 1 + state.length;
+        }
+        double[] combined = new double[length];
+        int at = 0;
+        for (double[] state : states) {
+            combined[at++] = state.length;
+            System.arraycopy(state, 0, combined, at, state.length);
+            at += state.length;
+        }
+        return combined;
+    }
+
+    private static void addBlock(byte[] block, double[] sum) {
+        double[] values = new double[sum.length];
+        int count = ProfileBlock.decode(block, values, 0);
+        for (int i = 0; i < count; i++) {
+            sum[i] += values[i];
+        }
+    }
+
+    private void record(long nanos, long messages) {
+        AtomicLong[] stats = LEVEL_STATS.get(level);
+        stats[0].incrementAndGet();
+        stats[1].addAndGet(nanos);
+        stats[2].accumulateAndGet(nanos, Math::max);
+        stats[3].addAndGet(messages);
+    }
+
+    // One line per level: requests answered, mean and max time from request to aggregated reply,
+    // messages exchanged with children per request, and requests dropped on timeout
+    public static String levelSummary() {
+        StringBuilder summary = new StringBuilder("Aggregation timings per level:");
+        for (Map.Entry<String, AtomicLong[]> entry : LEVEL_STATS.entrySet()) {
+            AtomicLong[] stats = entry.getValue();
+            long requests = stats[0].get();
+            summary.append(String.format("%n  %-18s requests=%d mean=%.3f ms max=%.3f ms messages/request=%.1f timeouts=%d", entry.getKey(), requests,
+                    requests > 0 ? stats[1].get() / 1e6 / requests : 0, stats[2].get() / 1e6,
+                    requests > 0 ? (double) stats[3].get() / requests : 0, stats[4].get()));
+        }
+        return summary.toString();
+    }
+}
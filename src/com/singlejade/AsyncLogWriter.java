@@ -0,0 +1,119 @@
+package com.singlejade;
+
+import java.io.PrintStream;
+
+// Bounded ring of formatted log lines, printed in order by one daemon thread. Agents only copy a
+// reference into the ring, so a slow console no longer holds up their message handling. When the
+// ring is full droppable lines are counted and discarded, the others wait for the writer.
+// Remaining lines are printed when the JVM shuts down.
+class AsyncLogWriter {
+    private final String[] ring;
+    private final PrintStream target;
+    private final Thread thread;
+    private long head;  // Next line to print
+    private long tail;  // Next free slot
+    private long dropped;
+    private long reported;  // Dropped lines already noted in the output
+    private boolean closed;
+
+    AsyncLogWriter(int capacity, PrintStream target) {
+        this.ring = new String[Math.max(capacity, 16)];
+        this.target = target;
+        this.thread = new Thread(this::drain, "log-writer");
+        thread.setDaemon(true);
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "log-flush"));
+    }
+
+    // Returns false once the writer is closed, the caller then prints the line itself
+    synchronized boolean offer(String line, boolean droppable) {
+        while (tail - head == ring.length && !closed) {
+            if (droppable) {
+                dropped++;
+                return true;
+            }
+            if (!thread.isAlive() || !waitQuietly()) {
+                return false;
+            }
+        }
+        if (closed) {
+            return false;
+        }
+        ring[(int) (tail++ % ring.length)] = line;
+        if (tail - head == 1) {
+            notifyAll();
+        }
+        return true;
+    }
+
+    synchronized void flush() {
+        while (head < tail && thread.isAlive() && waitQuietly()) {
+            // Woken by the writer after each batch
+        }
+    }
+
+    void close() {
+        flush();
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            thread.join(1000);  // Lines that came in while closing
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    synchronized long getDropped() {
+        return dropped;
+    }
+
+    private void drain() {
+        StringBuilder batch = new StringBuilder(8192);
+        while (true) {
+            long first;
+            long last;
+            synchronized (this) {
+                while (head == tail && !closed) {
+                    if (!waitQuietly()) {
+                        return;
+                    }
+                }
+                if (head == tail) {
+                    return;
+                }
+                first = head;
+                last = tail;
+            }
+            // Lines between head and tail belong to this thread until head moves
+            batch.setLength(0);
+            for (long i = first; i < last; i++) {
+                int slot = (int) (i % ring.length);
+                batch.append(ring[slot]).append(System.lineSeparator());
+                ring[slot] = null;
+            }
+            target.print(batch);
+            target.flush();
+            synchronized (this) {
+                head = last;
+                if (dropped > reported && head == tail) {
+                    target.println("(" + (dropped - reported) + " log lines dropped, ring of " + ring.length + " lines was full)");
+                    reported = dropped;
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    // Returns false when interrupted, leaving the interrupt flag set for the caller
+    private boolean waitQuietly() {
+        try {
+            wait();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
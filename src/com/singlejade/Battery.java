@@ -3,26 +3,64 @@ package com.singlejade;
 import jade.core.AID;
 import jade.core.Agent;
 import jade.core.behaviours.CyclicBehaviour;
+import jade.core.behaviours.TickerBehaviour;
 import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 public class Battery extends Agent {
-    private double capacity;  // Maximum capacity in kWh
-    private double currentCharge;  // Current charge in kWh
+    private static final MessageTemplate REQUESTS_AND_SUBSCRIPTIONS = MessageTemplate.or(
+            MessageTemplate.MatchPerformative(ACLMessage.REQUEST),
+            MessageTemplate.or(MessageTemplate.MatchPerformative(ACLMessage.SUBSCRIBE), MessageTemplate.MatchPerformative(ACLMessage.CANCEL)));
+    private static final String READY_CONVERSATION = "battery-ready";
+    private static final MessageTemplate READY_FAILED = MessageTemplate.and(
+            MessageTemplate.MatchConversationId(READY_CONVERSATION), MessageTemplate.MatchPerformative(ACLMessage.FAILURE));
+    private BatteryFleet fleet;  // One or more storage units behind this agent
+    private double minSOC = 20.0;  // Discharge floor in percent, published to subscribers
+    private double maxSOC = 90.0;  // Charge ceiling in percent, published to subscribers
+    private long stateVersion;
+    private final MessageCodec codec = new MessageCodec(true);  // Replies follow the format of each request
+    private final List<ACLMessage> subscriptions = new ArrayList<>();
 
     @Override
     protected void setup() {
-        System.out.println("Battery " + getLocalName() + " initialized.");
+        Log.info("Battery {} initialized.", getLocalName());
 
         // Get initial capacity and SOC from agent arguments
         Object[] args = getArguments();
         if (args != null && args.length >= 2) {
-            this.capacity = Double.parseDouble(args[0].toString());
-            double initialSOC = Double.parseDouble(args[1].toString());
-            this.currentCharge = capacity * (initialSOC / 100)*100;  // Initial SOC as a fraction of capacity
-            System.out.println("Battery initialized with capacity: " + capacity + " kWh and initial SOC: " + initialSOC + "%");
+            double capacity = Double.parseDouble(args[0].toString());
+            double initialSOC = Double.parseDouble(args[1].toString());  // Initial SOC as a fraction of capacity
+            if (args.length >= 4) {
+                this.minSOC = Double.parseDouble(args[2].toString());
+                this.maxSOC = Double.parseDouble(args[3].toString());
+            }
+
+            // Optional fleet settings after the positional arguments, e.g. "units=200 policy=soc_balancing unitPower=5"
+            // or "fleet=fleet.csv" with one line per unit; power limits are kW, applied per "stepMinutes" step
+            SimulationConfig fleetConfig = SimulationConfig.fromArguments(args.length > 4 ? Arrays.copyOfRange(args, 4, args.length) : null);
+            BatteryFleet.Policy policy = BatteryFleet.Policy.valueOf(fleetConfig.getString("policy", "proportional").toUpperCase());
+            StepLength stepLength = StepLength.fromConfig(fleetConfig);
+            if (fleetConfig.has("fleet")) {
+                try {
+                    fleet = BatteryFleet.fromCsv(fleetConfig.getString("fleet", null), stepLength, policy);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            } else {
+                fleet = BatteryFleet.uniform(fleetConfig.getInt("units", 1), capacity, initialSOC, minSOC, maxSOC,
+                        fleetConfig.getDouble("unitPower", 0), stepLength, policy);
+            }
+            if (Log.isEnabled(Log.Level.INFO)) {
+                Log.info("Battery initialized with capacity: " + fleet.getCapacity() + " kWh and initial SOC: " + fleet.getSOC()
+                        + "% across " + fleet.size() + " unit(s), " + policy.name().toLowerCase() + " dispatch, " + stepLength + " steps");
+            }
         } else {
-            System.out.println("Error: Missing battery parameters.");
+            Log.warn("Error: Missing battery parameters.");
             doDelete();
         }
 
@@ -33,33 +71,55 @@ public class Battery extends Agent {
         addBehaviour(new CyclicBehaviour() {
             @Override
             public void action() {
-                ACLMessage msg = receive(MessageTemplate.MatchPerformative(ACLMessage.REQUEST));
-                if (msg != null) {
-                    String content = msg.getContent();
+                ACLMessage msg = receive(REQUESTS_AND_SUBSCRIPTIONS);
+                if (msg != null && msg.getPerformative() == ACLMessage.SUBSCRIBE) {
+                    // Subscriber gets the current state now and a snapshot after every change
+                    subscriptions.add(msg);
+                    ACLMessage agree = msg.createReply();
+                    agree.setPerformative(ACLMessage.AGREE);
+                    send(agree);
+                    publishState();
+                    Log.info("Battery state subscription from {}", msg.getSender().getLocalName());
+                } else if (msg != null && msg.getPerformative() == ACLMessage.CANCEL) {
+                    subscriptions.removeIf(subscription -> subscription.getSender().equals(msg.getSender()));
+                } else if (msg != null) {
                     ACLMessage reply = msg.createReply();
+                    MessageCodec.Opcode command = codec.decode(msg) ? codec.opcode() : null;
 
-                    if (content.startsWith("discharge")) {
-                        String[] parts = content.split(":");
-                        double requestAmount = Double.parseDouble(parts[2]);
-                        double dischargedAmount = discharge(requestAmount);
+                    if (command == MessageCodec.Opcode.DISCHARGE) {
+                        double dischargedAmount = discharge(codec.amount());
+                        publishState();  // Ahead of the reply, so the requester's mirror is current when the reply arrives
                         reply.setPerformative(ACLMessage.PROPOSE);
-                        reply.setContent(String.valueOf(dischargedAmount));
-                        System.out.println("Battery discharged: " + dischargedAmount + " kWh. Current SOC: " + getSOC() + "%");
-                    } else if (content.startsWith("charge")) {
-                        String[] parts = content.split(":");
-                        double chargeAmount = Double.parseDouble(parts[2]);
-                        double chargedAmount = charge(chargeAmount);
+                        codec.encodeReply(reply, dischargedAmount);
+                        if (Log.isDebug()) {
+                            Log.debug("Battery discharged: {} kWh. Current SOC: {}%", dischargedAmount, getSOC());
+                        }
+                    } else if (command == MessageCodec.Opcode.CHARGE) {
+                        double chargedAmount = charge(codec.amount());
+                        publishState();
                         reply.setPerformative(ACLMessage.PROPOSE);
-                        reply.setContent(String.valueOf(chargedAmount));
-                        System.out.println("Battery charged: " + chargedAmount + " kWh. Current SOC: " + getSOC() + "%");
-                    } else if (content.equals("getSOC")) {
+                        codec.encodeReply(reply, chargedAmount);
+                        if (Log.isDebug()) {
+                            Log.debug("Battery charged: {} kWh. Current SOC: {}%", chargedAmount, getSOC());
+                        }
+                    } else if (command == MessageCodec.Opcode.GET_SOC) {
                         reply.setPerformative(ACLMessage.INFORM);
-                        reply.setContent(String.valueOf(getSOC()));
-                        System.out.println("Sent SOC to CentralAgent: " + getSOC() + "%");
+                        codec.encodeReply(reply, getSOC());
+                        if (Log.isDebug()) {
+                            Log.debug("Sent SOC to CentralAgent: {}%", getSOC());
+                        }
+                    } else if (command == MessageCodec.Opcode.SNAPSHOT_STATE) {
+                        reply.setPerformative(ACLMessage.INFORM);
+                        codec.encodeVectorReply(reply, snapshot());
+                    } else if (command == MessageCodec.Opcode.RESTORE_STATE && restore(codec.vector())) {
+                        publishState();
+                        reply.setPerformative(ACLMessage.CONFIRM);
+                        codec.encodeReply(reply, getSOC());
+                        Log.info("Battery restored to {}% across {} unit(s).", getSOC(), fleet.size());
                     } else {
                         reply.setPerformative(ACLMessage.NOT_UNDERSTOOD);
                         reply.setContent("Invalid command");
-                        System.out.println("Received invalid command: " + content);
+                        Log.warn("Received invalid command: {}", msg.hasByteSequenceContent() ? "binary " + command : msg.getContent());
                     }
                     send(reply);
                 } else {
@@ -73,23 +133,77 @@ public class Battery extends Agent {
         ACLMessage initMsg = new ACLMessage(ACLMessage.INFORM);
         initMsg.addReceiver(new AID("CentralAgent", AID.ISLOCALNAME));
         initMsg.setContent("Battery ready");
+        initMsg.setConversationId(READY_CONVERSATION);
         send(initMsg);
-        System.out.println("Sent initialization confirmation to CentralAgent.");
+        Log.info("Sent initialization confirmation to CentralAgent.");
+
+        // The launchers start this agent before CentralAgent, so the first confirmations can bounce
+        // back from the AMS; resend them until one is delivered, for up to 10 seconds
+        addBehaviour(new TickerBehaviour(this, 50) {
+            private int quietTicks;
+
+            @Override
+            protected void onTick() {
+                if (receive(READY_FAILED) != null) {
+                    quietTicks = 0;
+                    send(initMsg);
+                } else if (++quietTicks == 20 || getTickCount() >= 200) {
+                    stop();  // Delivered, no failure for a second
+                }
+            }
+        });
+    }
+
+    private void publishState() {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        stateVersion++;
+        double charge = fleet.getCharge(), capacity = fleet.getCapacity(), soc = getSOC();
+        for (ACLMessage subscription : subscriptions) {
+            // Each subscriber gets snapshots in the format it subscribed with
+            ACLMessage inform = subscription.createReply();
+            inform.setPerformative(ACLMessage.INFORM);
+            inform.setConversationId(BatteryMirror.CONVERSATION_ID);
+            codec.encodeState(inform, subscription.hasByteSequenceContent(), stateVersion, charge, capacity, soc, minSOC, maxSOC);
+            send(inform);
+        }
     }
 
     public double getSOC() {
-        return (currentCharge / capacity) * 100;  // Return state of charge as a percentage
+        return fleet.getSOC();  // Return state of charge as a percentage
+    }
+
+    // State for checkpoints: [state version, units, charge of each unit]
+    private double[] snapshot() {
+        double[] values = new double[2 + fleet.size()];
+        values[0] = stateVersion;
+        values[1] = fleet.size();
+        for (int unit = 0; unit < fleet.size(); unit++) {
+            values[2 + unit] = fleet.getUnitCharge(unit);
+        }
+        return values;
+    }
+
+    // Refuses a snapshot taken from a fleet of another size
+    private boolean restore(double[] values) {
+        if (values.length != 2 + fleet.size() || (int) values[1] != fleet.size()) {
+            Log.warn("Battery state for {} unit(s) does not fit a fleet of {}", values.length < 2 ? 0 : (int) values[1], fleet.size());
+            return false;
+        }
+        stateVersion = Math.max(stateVersion, (long) values[0]);  // Mirrors ignore versions they have seen
+        for (int unit = 0; unit < fleet.size(); unit++) {
+            fleet.setUnitCharge(unit, values[2 + unit]);
+        }
+        return true;
     }
 
+    // One fleet-level exchange per step; the fleet splits it across its units
     public double discharge(double amount) {
-        double dischargeAmount = Math.min(amount, currentCharge);
-        currentCharge -= dischargeAmount;
-        return dischargeAmount;
+        return fleet.discharge(amount);
     }
 
     public double charge(double amount) {
-        double chargeAmount = Math.min(amount, capacity - currentCharge);
-        currentCharge += chargeAmount;
-        return chargeAmount;
+        return fleet.charge(amount);
     }
 }
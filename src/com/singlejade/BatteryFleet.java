@@ -0,0 +1,219 @@
+package com.singlejade;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// Fleet of storage units held in primitive arrays. Each unit has its own capacity, charge, SOC
+// limits and power limits, given in kW and held as kWh per simulation step; a fleet-level charge or discharge is split across the units
+// in a single pass (plus one remainder pass for SOC balancing) according to the dispatch policy.
+public class BatteryFleet {
+    public enum Policy {
+        PROPORTIONAL,   // In proportion to each unit's headroom
+        SOC_BALANCING,  // Fuller units discharge first, emptier units charge first
+        PRIORITY        // Units in fleet order, each used to its limit before the next
+    }
+
+    private final int size;
+    private final double[] capacity;     // kWh
+    private final double[] charge;       // kWh
+    private final double[] minSOC;       // Percent
+    private final double[] maxSOC;       // Percent
+    private final double[] maxCharge;    // kWh per step
+    private final double[] maxDischarge; // kWh per step
+    private final double[] headroom;     // Scratch, reused by every dispatch
+    private Policy policy;
+
+    public BatteryFleet(double[] capacity, double[] charge, double[] minSOC, double[] maxSOC,
+                        double[] maxCharge, double[] maxDischarge, Policy policy) {
+        this.size = capacity.length;
+        this.capacity = capacity;
+        this.charge = charge;
+        this.minSOC = minSOC;
+        this.maxSOC = maxSOC;
+        this.maxCharge = maxCharge;
+        this.maxDischarge = maxDischarge;
+        this.headroom = new double[size];
+        this.policy = policy;
+    }
+
+    // Splits totalCapacity evenly over identical units; unitPower (kW) <= 0 means no power limit
+    public static BatteryFleet uniform(int units, double totalCapacity, double initialSOCFraction,
+                                       double minSOC, double maxSOC, double unitPower, StepLength stepLength, Policy policy) {
+        double[] capacity = new double[units];
+        double[] charge = new double[units];
+        double[] min = new double[units];
+        double[] max = new double[units];
+        double[] power = new double[units];
+        for (int i = 0; i < units; i++) {
+            capacity[i] = totalCapacity / units;
+            charge[i] = capacity[i] * initialSOCFraction;
+            min[i] = minSOC;
+            max[i] = maxSOC;
+            power[i] = unitPower > 0 ? stepLength.energy(unitPower) : Double.MAX_VALUE;
+        }
+        return new BatteryFleet(capacity, charge, min, max, power, power.clone(), policy);
+    }
+
+    // Reads one unit per line: capacity,initialSOC%,minSOC%,maxSOC%,maxChargeKW,maxDischargeKW (header row skipped)
+    public static BatteryFleet fromCsv(String fileName, StepLength stepLength, Policy policy) throws IOException {
+        List<double[]> units = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(fileName))) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] parts = line.split(",");
+                double[] unit = new double[6];
+                for (int i = 0; i < unit.length; i++) {
+                    unit[i] = Double.parseDouble(parts[i].trim());
+                }
+                units.add(unit);
+            }
+        }
+        int n = units.size();
+        double[] capacity = new double[n], charge = new double[n], min = new double[n], max = new double[n];
+        double[] maxCharge = new double[n], maxDischarge = new double[n];
+        for (int i = 0; i < n; i++) {
+            double[] unit = units.get(i);
+            capacity[i] = unit[0];
+            charge[i] = unit[0] * unit[1] / 100.0;
+            min[i] = unit[2];
+            max[i] = unit[3];
+            maxCharge[i] = unit[4] > 0 ? stepLength.energy(unit[4]) : Double.MAX_VALUE;
+            maxDischarge[i] = unit[5] > 0 ? stepLength.energy(unit[5]) : Double.MAX_VALUE;
+        }
+        return new BatteryFleet(capacity, charge, min, max, maxCharge, maxDischarge, policy);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(Policy policy) {
+        this.policy = policy;
+    }
+
+    public double getCapacity() {
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            total += capacity[i];
+        }
+        return total;
+    }
+
+    public double getCharge() {
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            total += charge[i];
+        }
+        return total;
+    }
+
+    public double getSOC() {
+        double totalCapacity = getCapacity();
+        return totalCapacity > 0 ? getCharge() / totalCapacity * 100 : 0;
+    }
+
+    public double getUnitCharge(int unit) {
+        return charge[unit];
+    }
+
+    public void setUnitCharge(int unit, double value) {
+        charge[unit] = Math.max(0, Math.min(capacity[unit], value));
+    }
+
+    public double getUnitSOC(int unit) {
+        return capacity[unit] > 0 ? charge[unit] / capacity[unit] * 100 : 0;
+    }
+
+    // Discharges up to amount across the fleet and returns what was actually delivered
+    public double discharge(double amount) {
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            headroom[i] = Math.min(maxDischarge[i], Math.max(0, charge[i] - capacity[i] * minSOC[i] / 100.0));
+            total += headroom[i];
+        }
+        return split(Math.min(amount, total), total, -1);
+    }
+
+    // Charges up to amount across the fleet and returns what was actually absorbed
+    public double charge(double amount) {
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            headroom[i] = Math.min(maxCharge[i], Math.max(0, capacity[i] * maxSOC[i] / 100.0 - charge[i]));
+            total += headroom[i];
+        }
+        return split(Math.min(amount, total), total, 1);
+    }
+
+    // Moves amount (never more than the total headroom) in the given direction, +1 charge / -1 discharge
+    private double split(double amount, double totalHeadroom, int direction) {
+        if (amount <= 0) {
+            return 0;
+        }
+        double remaining = amount;
+        switch (policy) {
+            case PRIORITY:
+                for (int i = 0; i < size && remaining > 0; i++) {
+                    double share = Math.min(headroom[i], remaining);
+                    charge[i] += direction * share;
+                    remaining -= share;
+                }
+                break;
+
+            case SOC_BALANCING: {
+                // Weight headroom by how far each unit sits on the wrong side of the fleet direction:
+                // full units give more when discharging, empty units take more when charging
+                double weightTotal = 0;
+                for (int i = 0; i < size; i++) {
+                    double fraction = capacity[i] > 0 ? charge[i] / capacity[i] : 0;
+                    double weight = headroom[i] * (direction < 0 ? fraction : 1 - fraction);
+                    weightTotal += weight;
+                }
+                if (weightTotal > 0) {
+                    for (int i = 0; i < size; i++) {
+                        double fraction = capacity[i] > 0 ? charge[i] / capacity[i] : 0;
+                        double weight = headroom[i] * (direction < 0 ? fraction : 1 - fraction);
+                        double share = Math.min(headroom[i], amount * weight / weightTotal);
+                        charge[i] += direction * share;
+                        headroom[i] -= share;
+                        remaining -= share;
+                        totalHeadroom -= share;
+                    }
+                }
+                // Whatever the weighting could not place goes proportionally to the headroom left
+                if (remaining > 1e-12 && totalHeadroom > 0) {
+                    remaining = proportional(remaining, totalHeadroom, direction);
+                }
+                break;
+            }
+
+            case PROPORTIONAL:
+            default:
+                remaining = proportional(remaining, totalHeadroom, direction);
+                break;
+        }
+        return amount - Math.max(0, remaining);
+    }
+
+    private double proportional(double amount, double totalHeadroom, int direction) {
+        double ratio = Math.min(1.0, amount / totalHeadroom);
+        double placed = 0;
+        for (int i = 0; i < size; i++) {
+            double share = headroom[i] * ratio;
+            charge[i] += direction * share;
+            placed += share;
+        }
+        return amount - placed;
+    }
+}
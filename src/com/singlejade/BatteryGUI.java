@@ -14,9 +14,11 @@ public class BatteryGUI extends JFrame {
     private JTextField initialSOCTextField;
     private JButton startButton;
     private AgentContainer container;
+    private SimulationConfig config;  // The BatteryAgent's other settings, as on the command line
 
-    public BatteryGUI(AgentContainer container) {
+    public BatteryGUI(AgentContainer container, SimulationConfig config) {
         this.container = container;
+        this.config = config;
 
         // GUI setup code
         setTitle("Battery Configuration");
@@ -30,6 +32,7 @@ public class BatteryGUI extends JFrame {
 
         capacityTextField = new JTextField();
         capacityTextField.setBounds(120, 10, 150, 25);
+        capacityTextField.setText(String.valueOf(config.getDouble("capacity", 1000.0)));
         add(capacityTextField);
 
         JLabel initialSOCLabel = new JLabel("Initial SOC (%):");
@@ -38,6 +41,7 @@ public class BatteryGUI extends JFrame {
 
         initialSOCTextField = new JTextField();
         initialSOCTextField.setBounds(120, 50, 150, 25);
+        initialSOCTextField.setText(String.valueOf(config.getDouble("soc", 50.0)));
         add(initialSOCTextField);
 
         startButton = new JButton("Start Battery");
@@ -57,14 +61,14 @@ public class BatteryGUI extends JFrame {
             double capacity = Double.parseDouble(capacityTextField.getText());
             double initialSOC = Double.parseDouble(initialSOCTextField.getText()) / 100.0; // Convert % to fraction
 
-            // Create and start the BatteryAgent with initialization parameters
-            Object[] batteryArgs = new Object[] { capacity, initialSOC };
+            // Create and start the BatteryAgent with initialization parameters, the rest as on the command line
+            Object[] batteryArgs = Main.batteryArguments(config, capacity, initialSOC);
             try {
                 AgentController batteryAgent = container.createNewAgent("BatteryAgent", "com.singlejade.Battery", batteryArgs);
                 batteryAgent.start();
-                System.out.println("BatteryAgent created and started with capacity=" + capacity + " kWh and initial SOC=" + (initialSOC * 100) + "%");
+                Log.info("BatteryAgent created and started with capacity={} kWh and initial SOC={}%", capacity, initialSOC * 100);
             } catch (StaleProxyException ex) {
-                ex.printStackTrace();
+                Log.error("Cannot start the BatteryAgent", ex);
             }
 
             // Close the GUI after starting the agent
@@ -0,0 +1,60 @@
+package com.singlejade;
+
+// Local copy of the BatteryAgent's state, kept current by the snapshots the battery pushes to its
+// subscribers after every change. Snapshots carry a version, and older ones are ignored.
+// Snapshots are MessageCodec BATTERY_STATE messages, binary or "state:<version>:<charge>:<capacity>:<soc>:<minSOC>:<maxSOC>"
+public class BatteryMirror {
+    public static final String CONVERSATION_ID = "battery-state";
+
+    private long version = -1;
+    private double charge;
+    private double capacity;
+    private double soc;
+    private double minSOC;
+    private double maxSOC;
+
+    // Applies the snapshot just decoded by codec and returns false when it is older than the one already held
+    public boolean update(MessageCodec codec) {
+        if (codec.opcode() != MessageCodec.Opcode.BATTERY_STATE) {
+            throw new IllegalArgumentException("Not a battery snapshot: " + codec.opcode());
+        }
+        if (codec.stateVersion() <= version) {
+            return false;
+        }
+        version = codec.stateVersion();
+        charge = codec.state(0);
+        capacity = codec.state(1);
+        soc = codec.state(2);
+        minSOC = codec.state(3);
+        maxSOC = codec.state(4);
+        return true;
+    }
+
+    public boolean isInitialized() {
+        return version >= 0;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public double getCharge() {
+        return charge;
+    }
+
+    public double getCapacity() {
+        return capacity;
+    }
+
+    public double getSOC() {
+        return soc;
+    }
+
+    public double getMinSOC() {
+        return minSOC;
+    }
+
+    public double getMaxSOC() {
+        return maxSOC;
+    }
+}
@@ -0,0 +1,34 @@
+package com.singlejade;
+
+// Mutable battery state used by the dispatch kernel: capacity and current charge in kWh
+public final class BatteryState {
+    public double capacity;
+    public double charge;
+
+    public BatteryState(double capacity, double charge) {
+        this.capacity = capacity;
+        this.charge = charge;
+    }
+
+    public void set(double capacity, double charge) {
+        this.capacity = capacity;
+        this.charge = charge;
+    }
+
+    public double getSOC() {
+        return capacity > 0 ? (charge / capacity) * 100 : 0;  // State of charge as a percentage
+    }
+
+    // Same limits as Battery.discharge and Battery.charge
+    public double discharge(double amount) {
+        double dischargeAmount = Math.min(amount, charge);
+        charge -= dischargeAmount;
+        return dischargeAmount;
+    }
+
+    public double charge(double amount) {
+        double chargeAmount = Math.min(amount, capacity - charge);
+        charge += chargeAmount;
+        return chargeAmount;
+    }
+}
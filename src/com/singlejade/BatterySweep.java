@@ -0,0 +1,139 @@
+package com.singlejade;
+
+import java.util.stream.IntStream;
+
+// Searches battery capacity x min SOC x max SOC for the cheapest configuration over a full run of
+// the profile, straight on the dispatch kernel. Cost = import x importPrice - export x exportPrice
+// + capacity x capacityCost. The grid is evaluated in parallel; refine=golden then narrows the
+// capacity of the best grid point with a golden-section search.
+//
+// Usage: BatterySweep hours=8760 capacityFrom=0 capacityTo=5000 capacityStep=50
+//        minSOCs=10,20,30 maxSOCs=80,90,100 importPrice=0.30 exportPrice=0.05 capacityCost=15 refine=golden
+public class BatterySweep {
+    private static final double GOLDEN_RATIO = (Math.sqrt(5) - 1) / 2;
+
+    private final double[] load;
+    private final double[] solar;
+    private final double[] wind;
+    private final double initialSOC;
+    private final double importPrice;
+    private final double exportPrice;
+    private final double capacityCost;  // Cost per kWh of capacity over the evaluated horizon
+
+    public BatterySweep(EnergyProfile profile, int hours, double initialSOC,
+                        double importPrice, double exportPrice, double capacityCost) {
+        this.load = new double[hours];
+        this.solar = new double[hours];
+        this.wind = new double[hours];
+        profile.copy(0, load, solar, wind);
+        this.initialSOC = initialSOC;
+        this.importPrice = importPrice;
+        this.exportPrice = exportPrice;
+        this.capacityCost = capacityCost;
+    }
+
+    public double cost(double capacity, double minSOC, double maxSOC) {
+        double[] totals = new double[DispatchKernel.TOTALS_SIZE];
+        new DispatchKernel(minSOC, maxSOC).simulate(load, solar, wind, 0, load.length,
+                new BatteryState(capacity, capacity * initialSOC / 100.0), new double[DispatchKernel.RESULT_SIZE], totals);
+        return totals[DispatchKernel.TOTAL_IMPORT] * importPrice
+                - totals[DispatchKernel.TOTAL_EXPORT] * exportPrice
+                + capacity * capacityCost;
+    }
+
+    // Evaluates every combination in parallel and returns {capacity, minSOC, maxSOC, cost} of the cheapest
+    public double[] sweep(double[] capacities, double[] minSOCs, double[] maxSOCs) {
+        int perCapacity = minSOCs.length * maxSOCs.length;
+        int combinations = capacities.length * perCapacity;
+        double[] costs = new double[combinations];
+        IntStream.range(0, combinations).parallel().forEach(i -> {
+            double minSOC = minSOCs[(i % perCapacity) / maxSOCs.length];
+            double maxSOC = maxSOCs[i % maxSOCs.length];
+            costs[i] = minSOC <= maxSOC ? cost(capacities[i / perCapacity], minSOC, maxSOC) : Double.POSITIVE_INFINITY;
+        });
+
+        // Lowest cost wins, ties go to the first combination so the answer does not depend on scheduling
+        int best = 0;
+        for (int i = 1; i < combinations; i++) {
+            if (costs[i] < costs[best]) {
+                best = i;
+            }
+        }
+        return new double[] {
+                capacities[best / perCapacity], minSOCs[(best % perCapacity) / maxSOCs.length],
+                maxSOCs[best % maxSOCs.length], costs[best]
+        };
+    }
+
+    // Golden-section search for the cheapest capacity in [low, high] at fixed SOC limits
+    public double[] refineCapacity(double low, double high, double minSOC, double maxSOC, double tolerance) {
+        double a = Math.max(0, low);
+        double b = high;
+        double c = b - GOLDEN_RATIO * (b - a);
+        double d = a + GOLDEN_RATIO * (b - a);
+        double costC = cost(c, minSOC, maxSOC);
+        double costD = cost(d, minSOC, maxSOC);
+        while (b - a > tolerance) {
+            if (costC < costD) {
+                b = d;
+                d = c;
+                costD = costC;
+                c = b - GOLDEN_RATIO * (b - a);
+                costC = cost(c, minSOC, maxSOC);
+            } else {
+                a = c;
+                c = d;
+                costC = costD;
+                d = a + GOLDEN_RATIO * (b - a);
+                costD = cost(d, minSOC, maxSOC);
+            }
+        }
+        double capacity = (a + b) / 2;
+        return new double[] { capacity, minSOC, maxSOC, cost(capacity, minSOC, maxSOC) };
+    }
+
+    static double[] range(double from, double to, double step) {
+        int count = (int) Math.floor((to - from) / step + 1e-9) + 1;
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = from + i * step;
+        }
+        return values;
+    }
+
+    static double[] list(String values) {
+        String[] parts = values.split(",");
+        double[] result = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Double.parseDouble(parts[i].trim());
+        }
+        return result;
+    }
+
+    public static void main(String[] args) {
+        SimulationConfig config = SimulationConfig.fromArguments(args);
+        EnergyProfile profile = EnergyProfile.load(config.getString("profile", EnergyProfile.DEFAULT_PROFILE), StepLength.HOURLY);
+        BatterySweep sweep = new BatterySweep(profile, config.getInt("hours", 8760), config.getDouble("soc", 50.0),
+                config.getDouble("importPrice", 0.30), config.getDouble("exportPrice", 0.05), config.getDouble("capacityCost", 15.0));
+
+        double capacityStep = config.getDouble("capacityStep", 50.0);
+        double[] capacities = range(config.getDouble("capacityFrom", 0.0), config.getDouble("capacityTo", 5000.0), capacityStep);
+        double[] minSOCs = list(config.getString("minSOCs", "0,10,20,30,40"));
+        double[] maxSOCs = list(config.getString("maxSOCs", "60,70,80,90,100"));
+
+        long start = System.nanoTime();
+        double[] best = sweep.sweep(capacities, minSOCs, maxSOCs);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int combinations = capacities.length * minSOCs.length * maxSOCs.length;
+        System.out.printf("Evaluated %d configurations in %.2f s (%.0f configurations/s)%n", combinations, seconds, combinations / seconds);
+        System.out.printf("Best grid point: capacity=%.1f kWh, minSOC=%.1f%%, maxSOC=%.1f%%, cost=%.2f%n", best[0], best[1], best[2], best[3]);
+
+        if (config.getString("refine", "none").equalsIgnoreCase("golden")) {
+            double[] refined = sweep.refineCapacity(best[0] - capacityStep, best[0] + capacityStep, best[1], best[2], config.getDouble("tolerance", 1.0));
+            if (refined[3] < best[3]) {
+                best = refined;
+            }
+            System.out.printf("Refined: capacity=%.1f kWh, minSOC=%.1f%%, maxSOC=%.1f%%, cost=%.2f%n", best[0], best[1], best[2], best[3]);
+        }
+    }
+}
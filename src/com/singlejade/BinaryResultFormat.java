@@ -0,0 +1,61 @@
+package com.singlejade;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+// Compact binary rows: header [int magic][int columns][columns x UTF name], then each row as
+// columns x double (big-endian), so a row is a fixed 8 bytes per column.
+public class BinaryResultFormat implements ResultFormat {
+    public static final int MAGIC = 0x53414752;  // "SAGR"
+
+    private final DataOutputStream out;
+    private final FileChannel channel;
+    private int columns;
+
+    public BinaryResultFormat(String fileName) throws IOException {
+        this(new FileOutputStream(fileName));
+    }
+
+    BinaryResultFormat(FileOutputStream file) {
+        this.out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024));
+        this.channel = file.getChannel();
+    }
+
+    @Override
+    public void writeHeader(String[] names) throws IOException {
+        columns = names.length;
+        out.writeInt(MAGIC);
+        out.writeInt(columns);
+        for (String name : names) {
+            out.writeUTF(name);
+        }
+    }
+
+    @Override
+    public void writeRow(double[] row) throws IOException {
+        if (columns == 0) {
+            columns = row.length;  // Appending to a resumed file, the header is already there
+        }
+        for (int i = 0; i < columns; i++) {
+            out.writeDouble(row[i]);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public long position() throws IOException {
+        return channel.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -4,277 +4,739 @@ import jade.core.Agent;
 import jade.core.AID;
 import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
+import jade.core.behaviours.SimpleBehaviour;
 import jade.core.behaviours.TickerBehaviour;
-import com.opencsv.CSVWriter;
+import jade.wrapper.ControllerException;
 
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
 public class CentralAgent extends Agent {
-    private static final String CSV_FILE_PATH = "energy_log.csv";
+    private static final String[] RESULT_COLUMNS = {"Hour", "Load", "SolarGen", "WindGen", "BatteryUsed", "GridUsed", "BatterySOC", "SurplusToGrid", "Degraded"};
+    private static final int LOAD = 0, SOLAR = 1, WIND = 2;
+    // Bits of the Degraded column: which values of the step are fallbacks for a missed deadline
+    // (load, solar and wind are 1 << input), and whether the step ran out of time
+    private static final int DEGRADED_BATTERY = 8, DEGRADED_GRID = 16, DEGRADED_SOC = 32, DEGRADED_TICK = 64;
+    private static final int ABANDONED_LIMIT = 1024;
+    private static final String[] INPUT_AGENTS = {"LoadAgent", "SolarAgent", "WindAgent"};
+    private static final int[] INPUT_PERFORMATIVES = {ACLMessage.INFORM, ACLMessage.PROPOSE, ACLMessage.PROPOSE};
+    private static final MessageCodec.Opcode[] STEP_OPCODES = {MessageCodec.Opcode.GET_LOAD, MessageCodec.Opcode.GET_ENERGY, MessageCodec.Opcode.GET_ENERGY};
+    private static final MessageCodec.Opcode[] RANGE_OPCODES = {MessageCodec.Opcode.GET_LOAD_RANGE, MessageCodec.Opcode.GET_ENERGY_RANGE, MessageCodec.Opcode.GET_ENERGY_RANGE};
+    private static final String[] STATEFUL_AGENTS = {"BatteryAgent", "SolarAgent", "WindAgent"};  // Included in checkpoints
+    private static final MessageTemplate BATTERY_STATE = MessageTemplate.MatchConversationId(BatteryMirror.CONVERSATION_ID);
+    // Requests that timed out, so their replies can be thrown away if they still come
+    private final Map<String, MessageCodec.Opcode> abandoned = new LinkedHashMap<String, MessageCodec.Opcode>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, MessageCodec.Opcode> eldest) {
+            return size() > ABANDONED_LIMIT;
+        }
+    };
+    private final MessageTemplate lateReplies = new MessageTemplate(
+            (MessageTemplate.MatchExpression) msg -> msg.getInReplyTo() != null && abandoned.containsKey(msg.getInReplyTo()));
+    private SimulationConfig config;
+    private SimulationClock clock;
+    private StepLength stepLength;  // "stepMinutes=15" runs in quarter hours, values are kWh per step
+    private MessageCodec codec;
+    private final double[] stepInputs = new double[INPUT_AGENTS.length];
+    private final ACLMessage[] fanOutReplies = new ACLMessage[INPUT_AGENTS.length];
+    private long requestCounter;
+    private long lastRequestNanos;  // When the last request went out, for its round-trip time
+    private final Set<String> remoteAgents = new HashSet<>();  // Agents in other containers, "remoteAgents=SolarAgent,GridAgent"
+    private long remoteMessages;    // Requests to them, their replies and battery state pushes
+    private AgentMetrics metrics;
+    private TickDeadline deadline;
+    private InputFallback fallback;
+    private int degraded;  // Degraded bits of the step being handled
+    private final int[] degradedUntil = new int[INPUT_AGENTS.length];  // Prefetched steps before this are fallbacks
+    private double lastSOC;
+    private Checkpointer checkpointer;  // null without "checkpoint=<file>"
+    private ResultSink resultSink;
+    private DispatchKernel dispatchKernel;
+    private RollingHorizonScheduler scheduler;  // null for the greedy rule
+    private Tariff tariff;
+    private double energyCost;
+    private KpiEngine kpis;
+    private StepRing dashboard;  // null without the live dashboard
+    private final double[] dashboardRow = new double[Dashboard.CHANNELS];
+    private double batteryCapacity;
+    private final BatteryState batteryState = new BatteryState(0, 0);
+    private final BatteryMirror batteryMirror = new BatteryMirror();
+    private final double[] dispatch = new double[DispatchKernel.RESULT_SIZE];
+    private final double[] resultRow = new double[RESULT_COLUMNS.length];
+    private int prefetchSteps;   // Steps fetched per range request, 0 queries every step separately
+    private double[][] prefetched;
+    private int prefetchStart;
+    private int prefetchCount;
 
     @Override
     protected void setup() {
-        System.out.println("CentralAgent " + getLocalName() + " initialized.");
-        initializeCSV();
+        Log.info("CentralAgent {} initialized.", getLocalName());
+        config = SimulationConfig.fromArguments(getArguments());
+        clock = SimulationClock.fromConfig(config);
+        stepLength = clock.getStepLength();
+        codec = MessageCodec.fromConfig(config);  // "codec=text" keeps the old string commands
+        Log.info("Simulation clock: {}, horizon {} steps of {}", clock.getMode().name().toLowerCase(), clock.getHorizon(), stepLength);
+        for (String name : config.getString("remoteAgents", "").split(",")) {
+            if (!name.isBlank()) {
+                remoteAgents.add(name.trim());
+            }
+        }
+        prefetchSteps = Math.min(config.getInt("prefetch", 8760), clock.getHorizon());
+
+        // Battery scheduling, "scheduler=greedy" (default) or "scheduler=dp horizonHours=48 socStates=1000"
+        tariff = Tariff.fromConfig(config);
+        if (config.getString("scheduler", "greedy").equalsIgnoreCase("dp")) {
+            scheduler = RollingHorizonScheduler.fromConfig(config, stepLength, tariff);
+            // The planner reads its forecast from the prefetched ranges
+            prefetchSteps = Math.min(Math.max(prefetchSteps, scheduler.getHorizon()), clock.getHorizon());
+            Log.info("Battery scheduler: dynamic programming over {} steps of {}", scheduler.getHorizon(), stepLength);
+        }
+        if (prefetchSteps > 0) {
+            prefetched = new double[INPUT_AGENTS.length][prefetchSteps];
+        }
+        // Deadlines and fallbacks, "requestTimeoutMs=2000 tickDeadlineMs=1000 fallback=last|forecast|zero"
+        deadline = TickDeadline.fromConfig(config, clock);
+        fallback = InputFallback.fromConfig(config, INPUT_AGENTS.length, stepLength);
+        Log.info("Timeouts: {}, {} fallback", deadline.describe(), fallback.getPolicy().name().toLowerCase());
+        // Periodic checkpoints, "checkpoint=run.ckpt checkpointHours=720"; "resume=true" continues from the file
+        checkpointer = Checkpointer.fromConfig(config, stepLength);
+        Checkpoint resumed = loadCheckpoint();
+        if (!initializeResultSink(resumed) && resumed != null) {
+            // Resuming without the rows before the checkpoint would leave a result log with a gap
+            Log.warn("Cannot continue the result log from the checkpoint, starting at step 0");
+            resumed = null;
+            initializeResultSink(null);
+        }
+
+        // Round-trip latency per message type and tick durations, also published over JMX
+        metrics = new AgentMetrics(getLocalName(), clock.getMode() == SimulationClock.Mode.FASTFORWARD ? 0 : clock.getTickMillis());
+        metrics.register();
+        // Daily, monthly and whole-run KPIs with sliding import peaks, "kpiPeakHours=1,24"
+        kpis = KpiEngine.fromConfig(config, stepLength);
+        metrics.publish("Kpis", kpis);
+        // Live charts, shown by default when the run has a GUI; "dashboard=false" turns them off
+        if (config.getBoolean("dashboard", !config.getBoolean("headless", false))) {
+            dashboard = Dashboard.open(config, clock);
+        }
+
+        // Battery size and SOC limits, e.g. "capacity=1000 minSOC=20 maxSOC=90"
+        batteryCapacity = config.getDouble("capacity", 1000.0);
+        dispatchKernel = new DispatchKernel(config.getDouble("minSOC", 20.0), config.getDouble("maxSOC", 90.0));
 
         // Wait for BatteryAgent initialization confirmation
         waitForBatteryInitialization();
+        subscribeToBatteryState();
+        kpis.setCapacity(getBatteryCapacity());
+        if (resumed != null) {
+            restoreFrom(resumed);
+        }
 
-        // Add behaviour to process each hour
-        addBehaviour(new TickerBehaviour(this, 1000) { // Runs every second for testing purposes
-            private int hour = 0;
-
-            @Override
-            protected void onTick() {
-                if (hour < 24) {
-                    handleHour(hour);
-                    hour++;
-                } else {
-                    System.out.println("Stopping CentralAgent after 24 hours.");
-                    stop();
-                    doDelete();
+        // Add behaviour to process each step, paced in real time or fast-forwarded
+        clock.start();
+        if (clock.getMode() == SimulationClock.Mode.FASTFORWARD) {
+            addBehaviour(new SimpleBehaviour(this) {
+                @Override
+                public void action() {
+                    timedStep(clock.currentStep());
+                    clock.advance();
                 }
-            }
-        });
+
+                @Override
+                public boolean done() {
+                    return !clock.hasNext();
+                }
+
+                @Override
+                public int onEnd() {
+                    finishSimulation();
+                    return 0;
+                }
+            });
+        } else {
+            addBehaviour(new TickerBehaviour(this, clock.getTickMillis()) {
+                @Override
+                protected void onTick() {
+                    if (clock.hasNext()) {
+                        timedStep(clock.currentStep());
+                        clock.advance();
+                    } else {
+                        stop();
+                        finishSimulation();
+                    }
+                }
+            });
+        }
+    }
+
+    private void finishSimulation() {
+        Log.summary("Stopping CentralAgent after " + clock.currentStep() + " steps.");
+        Log.summary(clock.summary());
+        Log.summary(String.format("Energy cost under tariff: %.2f", energyCost));
+        Log.summary(kpis.summary());
+        if (dashboard != null && dashboard.getDropped() > 0) {
+            Log.summary("Dashboard dropped " + dashboard.getDropped() + " of " + clock.currentStep() + " step samples while its window fell behind.");
+        }
+        if (scheduler != null) {
+            Log.summary(scheduler.summary());
+        }
+        if (checkpointer != null) {
+            checkpointer.close();
+            Log.summary(checkpointer.summary());
+        }
+        Log.summary(metrics.summary());
+        Log.summary("Message codec: " + (codec.isBinary() ? "binary" : "text") + ", " + codec.getMismatches() + " mismatched replies");
+        if (!remoteAgents.isEmpty()) {
+            Log.summary(String.format("Inter-container messages from CentralAgent: %d to %s, %.1f per step", remoteMessages,
+                    String.join(",", remoteAgents), (double) remoteMessages / Math.max(1, clock.currentStep())));
+        }
+        // Aggregation timings when there is a tree; "levelSummary=true|false" decides explicitly, as DistributedLauncher does
+        if (config.getBoolean("levelSummary", config.getInt("loads", 1) > 1 || config.getInt("solarUnits", 1) > 1 || config.getInt("windUnits", 1) > 1)) {
+            Log.summary(Aggregator.levelSummary());
+        }
+        Log.flush();
+        doDelete();
+
+        if (config.getBoolean("headless", false)) {
+            // Nothing left to watch in a headless run, so shut the platform down from outside the agent thread
+            new Thread(() -> {
+                try {
+                    getContainerController().getPlatformController().kill();
+                } catch (ControllerException e) {
+                    Log.warn("Could not shut the platform down: {}", e.getMessage());
+                }
+            }, "platform-shutdown").start();
+        }
     }
 
     private void waitForBatteryInitialization() {
         ACLMessage initResponse = blockingReceive(MessageTemplate.MatchContent("Battery ready"), 10000); // 10-second timeout
         if (initResponse != null) {
-            System.out.println("BatteryAgent initialization confirmed.");
+            Log.info("BatteryAgent initialization confirmed.");
         } else {
-            System.out.println("BatteryAgent initialization not confirmed within the timeout period. Check if BatteryAgent sent the message.");
+            Log.warn("BatteryAgent initialization not confirmed within the timeout period. Check if BatteryAgent sent the message.");
+        }
+    }
+
+    private void timedStep(int step) {
+        long startNanos = System.nanoTime();
+        deadline.startTick();
+        degraded = 0;
+        if (!abandoned.isEmpty()) {
+            discardLateReplies();
+        }
+        handleStep(step);
+        if (degraded != 0) {
+            metrics.ticks().recordDegraded();
         }
+        if (checkpointer != null && step + 1 < clock.getHorizon() && checkpointer.isDue(step + 1)) {
+            checkpoint(step + 1);
+        }
+        metrics.ticks().record(System.nanoTime() - startNanos);
     }
 
-    private void handleHour(int hour) {
-        System.out.println("Processing hour " + hour);
-        double load = requestLoad(hour);
-        System.out.println("Load for hour " + hour + ": " + load + " kWh");
-        double currentLoad = load;
-        double solarGeneration = requestEnergyFromSource("SolarAgent", hour, Double.MAX_VALUE);
-        double windGeneration = requestEnergyFromSource("WindAgent", hour, Double.MAX_VALUE);
-        double solarUsed = 0, windUsed = 0, batteryUsed = 0, gridUsed = 0;
-        double solarSurplus = 0, windSurplus = 0;
-        double batterySOC = 0;
-        double surplusToGrid = 0;
-
-        // Step 1: Use solar energy to meet the load
-        if (solarGeneration >= currentLoad) {
-            solarUsed = currentLoad;
-            solarSurplus = solarGeneration - currentLoad;
-            currentLoad = 0;
+    private void handleStep(int step) {
+        if (Log.isDebug()) {
+            Log.debug("Processing step {}", step);
+        }
+        // Load, solar and wind are queried in parallel, so the step waits only for the slowest agent
+        requestStepInputs(step);
+        double load = stepInputs[LOAD];
+        double solarGeneration = stepInputs[SOLAR];
+        double windGeneration = stepInputs[WIND];
+        if (Log.isDebug()) {
+            Log.debug("Load for step " + step + ": " + load + " kWh, solar: " + solarGeneration + " kWh, wind: " + windGeneration + " kWh");
+        }
+
+        // Plan the step with the dispatch kernel against the battery's current charge
+        double batteryCapacity = getBatteryCapacity();
+        batteryState.set(batteryCapacity, getBatterySOC() / 100.0 * batteryCapacity);
+        if (scheduler != null) {
+            // The look-ahead plan caps how much the battery gives or takes this step
+            int offset = step - prefetchStart;
+            double planned = scheduler.plan(prefetched[LOAD], prefetched[SOLAR], prefetched[WIND], offset, prefetchCount - offset, step,
+                    batteryState, dispatchKernel.getMinSOC(), dispatchKernel.getMaxSOC());
+            dispatchKernel.step(load, solarGeneration, windGeneration, batteryState, Math.max(0, -planned), Math.max(0, planned), dispatch);
         } else {
-            solarUsed = solarGeneration;
-            currentLoad -= solarGeneration;
-            solarSurplus = 0;
-        }
-        System.out.println("Solar generation used for hour " + hour + ": " + solarUsed + " kWh");
-        System.out.println("Calculated solar surplus for hour " + hour + ": " + solarSurplus + " kWh");
-
-        // Step 2: Use wind energy if load is not fully met
-        if (currentLoad > 0) {
-            if (windGeneration >= currentLoad) {
-                windUsed = currentLoad;
-                windSurplus = windGeneration - currentLoad;
-                currentLoad = 0;
-            } else {
-                windUsed = windGeneration;
-                currentLoad -= windGeneration;
-                windSurplus = 0;
+            dispatchKernel.step(load, solarGeneration, windGeneration, batteryState, dispatch);
+        }
+
+        // Carry the plan out with the Battery and Grid agents
+        double batteryUsed = 0, gridUsed = 0;
+        double gridNeeded = dispatch[DispatchKernel.GRID_IMPORT];
+        if (dispatch[DispatchKernel.BATTERY_DISCHARGED] > 0) {
+            batteryUsed = requestEnergyFromBattery(step, dispatch[DispatchKernel.BATTERY_DISCHARGED]);
+            gridNeeded += dispatch[DispatchKernel.BATTERY_DISCHARGED] - batteryUsed;  // Grid covers anything the battery did not give
+            if (Log.isDebug()) {
+                Log.debug("Battery used for step {}: {} kWh", step, batteryUsed);
+            }
+        }
+        if (gridNeeded > 0) {
+            gridUsed = requestEnergyFromGrid(gridNeeded);
+            if (Log.isDebug()) {
+                Log.debug("Grid used for step {}: {} kWh", step, gridUsed);
             }
-            System.out.println("Wind generation used for hour " + hour + ": " + windUsed + " kWh");
-            System.out.println("Calculated wind surplus for hour " + hour + ": " + windSurplus + " kWh");
         }
 
-        // Step 3: Use battery energy if load is not fully met
-        if (currentLoad > 0) {
-            batteryUsed = requestEnergyFromBattery(hour, currentLoad);
-            System.out.println("Battery used for hour " + hour + ": " + batteryUsed + " kWh");
-            currentLoad -= batteryUsed;
+        double surplusToGrid = dispatch[DispatchKernel.GRID_EXPORT];
+        double charged = 0;
+        if (dispatch[DispatchKernel.BATTERY_CHARGED] > 0) {
+            charged = requestBatteryCharge(dispatch[DispatchKernel.BATTERY_CHARGED]);
+            surplusToGrid += dispatch[DispatchKernel.BATTERY_CHARGED] - charged;
         }
+        if (Log.isDebug()) {
+            Log.debug("Surplus energy sent to grid for step {}: {} kWh", step, surplusToGrid);
+        }
+
+        double stepCost = gridUsed * tariff.importPrice(step) - surplusToGrid * tariff.exportPrice();
+        energyCost += stepCost;
 
-        // Step 4: Use grid energy for any remaining unmet load
-        if (currentLoad > 0) {
-            gridUsed = requestEnergyFromGrid(currentLoad);
-            System.out.println("Grid used for hour " + hour + ": " + gridUsed + " kWh");
+        // Log results through the buffered result writer
+        double batterySOC = getBatterySOC();
+        if (deadline.isExpired()) {
+            degraded |= DEGRADED_TICK;
+            Log.warn("Step {} ran past its deadline, degraded: {}", step, degraded);
         }
+        if (Log.isDebug()) {
+            Log.debug("Battery SOC after step {}: {}%", step, batterySOC);
+        }
+        kpis.record(step, load, solarGeneration + windGeneration, gridUsed, surplusToGrid, charged, batteryUsed, stepCost, degraded != 0);
+        if (dashboard != null) {
+            streamToDashboard(step, load, solarGeneration, windGeneration, batterySOC, gridUsed, surplusToGrid);
+        }
+        logResult(step, load, solarGeneration, windGeneration, batteryUsed, gridUsed, batterySOC, surplusToGrid);
+    }
 
-        // Step 5: Handle and send surplus energy to the grid if any
-        surplusToGrid = handleSurplusEnergy(solarSurplus, windSurplus);
-        System.out.println("Surplus energy sent to grid for hour " + hour + ": " + surplusToGrid + " kWh");
+    private String sendRequest(String agentName, MessageCodec.Opcode command, int step, int lastStep, double amount, String conversationId) {
+        ACLMessage request = new ACLMessage(ACLMessage.REQUEST);
+        request.addReceiver(getAID(agentName));
+        codec.encodeRequest(request, command, step, lastStep, amount);
+        request.setConversationId(conversationId);
+        String replyWith = getLocalName() + "-" + (++requestCounter);
+        request.setReplyWith(replyWith);
+        lastRequestNanos = System.nanoTime();
+        send(request);
+        countRemote(agentName);
+        return replyWith;
+    }
 
-        // Log results to CSV
-        batterySOC = getBatterySOC();
-        System.out.println("Battery SOC after hour " + hour + ": " + batterySOC + "%");
-        logToCSV(hour, load, solarGeneration, windGeneration, batteryUsed, gridUsed, batterySOC, surplusToGrid);
+    // Counts a request to an agent in another container and the reply it crosses back with
+    private void countRemote(String agentName) {
+        if (remoteAgents.contains(agentName)) {
+            remoteMessages += 2;
+        }
     }
 
-    private double requestLoad(int hour) {
-        ACLMessage loadRequest = new ACLMessage(ACLMessage.REQUEST);
-        loadRequest.addReceiver(getAID("LoadAgent"));
-        loadRequest.setContent("getLoad:" + hour);
-        send(loadRequest);
-        System.out.println("Sending load request for hour " + hour);
-
-        ACLMessage loadResponse = blockingReceive(MessageTemplate.MatchPerformative(ACLMessage.INFORM));
-        if (loadResponse != null) {
-            System.out.println("Received load response: " + loadResponse.getContent());
-            return Double.parseDouble(loadResponse.getContent());
-        } else {
-            System.out.println("No response received for load request");
-            return 0;
+    // Waits up to waitMillis for the reply to one specific request (0 takes it only if it is already
+    // queued), so replies can no longer be attributed to the wrong source
+    private ACLMessage awaitReply(String replyWith, MessageCodec.Opcode command, int performative, long waitMillis) {
+        long sentNanos = lastRequestNanos;
+        MessageTemplate template = MessageTemplate.MatchInReplyTo(replyWith);
+        ACLMessage reply = waitMillis > 0 ? blockingReceive(template, waitMillis) : receive(template);
+        MessageStats stats = metrics.message(command);
+        if (reply == null) {
+            stats.recordTimeout();
+            abandoned.put(replyWith, command);
+            return null;
+        }
+        stats.recordRoundTrip(System.nanoTime() - sentNanos);
+        if (reply.getPerformative() != performative) {
+            stats.recordMismatch();
+            Log.warn("Unexpected {} reply to {}", ACLMessage.getPerformative(reply.getPerformative()), replyWith);
+            return null;
         }
+        return reply;
     }
 
-    private double requestEnergyFromSource(String agentName, int hour, double requiredEnergy) {
-        ACLMessage energyRequest = new ACLMessage(ACLMessage.REQUEST);
-        energyRequest.addReceiver(getAID(agentName));
-        energyRequest.setContent("getEnergyAtHour:" + hour);
-        send(energyRequest);
-        System.out.println("Sending energy request to " + agentName + " for hour " + hour);
-
-        ACLMessage energyResponse = blockingReceive(MessageTemplate.MatchPerformative(ACLMessage.PROPOSE));
-        if (energyResponse != null) {
-            System.out.println("Received energy response from " + agentName + ": " + energyResponse.getContent());
-            return Double.parseDouble(energyResponse.getContent());
-        } else {
-            System.out.println("No response received from " + agentName);
+    // Replies to requests that timed out are counted and dropped, so they cannot pile up in the queue
+    private void discardLateReplies() {
+        ACLMessage late;
+        while ((late = receive(lateReplies)) != null) {
+            metrics.message(abandoned.remove(late.getInReplyTo())).recordLateReply();
+            Log.debug("Dropped late {} reply from {}", ACLMessage.getPerformative(late.getPerformative()), late.getSender().getLocalName());
+        }
+    }
+
+    // Value carried by a reply, or 0 when it answers a different command than the one sent
+    private double valueOf(ACLMessage reply, MessageCodec.Opcode command) {
+        double value = codec.decodeReply(reply, command);
+        if (Double.isNaN(value)) {
+            metrics.message(command).recordMismatch();
             return 0;
         }
+        return value;
     }
 
-    private double requestEnergyFromBattery(int hour, double requiredEnergy) {
-        double batterySOC = getBatterySOC(); // Get the current SOC
-        double batteryCapacity = getBatteryCapacity(); // Total battery capacity in kWh
+    private void requestStepInputs(int step) {
+        if (prefetchSteps > 0) {
+            // The scheduler needs its whole horizon ahead, so the block is fetched again once it runs short
+            int needed = scheduler != null ? Math.min(scheduler.getHorizon(), clock.getHorizon() - step) : 1;
+            if (step < prefetchStart || step + needed > prefetchStart + prefetchCount) {
+                long startNanos = System.nanoTime();
+                prefetchHorizon(step);
+                deadline.exclude(System.nanoTime() - startNanos);  // Range requests have their own timeout
+            }
+            for (int i = 0; i < INPUT_AGENTS.length; i++) {
+                stepInputs[i] = prefetched[i][step - prefetchStart];
+                fallback.record(i, step, stepInputs[i]);
+                if (step < degradedUntil[i]) {
+                    degraded |= 1 << i;
+                }
+            }
+            return;
+        }
 
-        // Calculate the maximum allowable discharge to maintain SOC >= 20%
-        double minSOCThreshold = 20.0; // Minimum SOC percentage
-        double minSOCLevel = batteryCapacity * (minSOCThreshold / 100.0); // Minimum allowable charge level
-        double availableForDischarge = Math.max(0, (batterySOC / 100.0 * batteryCapacity) - minSOCLevel);
+        fanOut("step-" + step, STEP_OPCODES, step, step, deadline.requestWait());
+        if (Log.isDebug()) {
+            Log.debug("Sent load, solar and wind requests for step {}", step);
+        }
+        for (int i = 0; i < INPUT_AGENTS.length; i++) {
+            double value = fanOutReplies[i] != null ? codec.decodeReply(fanOutReplies[i], STEP_OPCODES[i]) : Double.NaN;
+            if (Double.isNaN(value)) {
+                if (fanOutReplies[i] != null) {
+                    metrics.message(STEP_OPCODES[i]).recordMismatch();
+                }
+                value = fallback.substitute(i, step);
+                degraded |= 1 << i;
+                Log.warn("No {} reply from {} for step {}, using a fallback", STEP_OPCODES[i], INPUT_AGENTS[i], step);
+            } else {
+                fallback.record(i, step, value);
+            }
+            stepInputs[i] = value;
+        }
+    }
 
-        // Only request the amount that can be discharged while maintaining SOC >= 20%
-        double dischargeAmount = Math.min(requiredEnergy, availableForDischarge);
+    // Fetches the next block of steps from Load, Solar and Wind in one range request each
+    private void prefetchHorizon(int firstStep) {
+        int count = Math.min(prefetchSteps, clock.getHorizon() - firstStep);
+        int lastStep = firstStep + count - 1;
+        fanOut("range-" + firstStep, RANGE_OPCODES, firstStep, lastStep, deadline.rangeWait());
+        for (int i = 0; i < INPUT_AGENTS.length; i++) {
+            Arrays.fill(prefetched[i], 0, count, 0);
+            if (fanOutReplies[i] != null && fanOutReplies[i].hasByteSequenceContent()
+                    && ProfileBlock.isBlock(fanOutReplies[i].getByteSequenceContent())) {
+                ProfileBlock.decode(fanOutReplies[i].getByteSequenceContent(), prefetched[i], 0);
+                degradedUntil[i] = Math.min(degradedUntil[i], firstStep);
+                continue;
+            }
+            if (fanOutReplies[i] != null) {
+                metrics.message(RANGE_OPCODES[i]).recordMismatch();
+                Log.warn("Reply from {} to {} is not a range block", INPUT_AGENTS[i], RANGE_OPCODES[i]);
+            }
+            // The whole block runs on fallbacks, which the scheduler then also plans with
+            for (int step = firstStep; step <= lastStep; step++) {
+                prefetched[i][step - firstStep] = fallback.substitute(i, step);
+            }
+            degradedUntil[i] = firstStep + count;
+            Log.warn("No steps {}..{} from {}, using fallbacks", firstStep, lastStep, INPUT_AGENTS[i]);
+        }
+        prefetchStart = firstStep;
+        prefetchCount = count;
+        if (Log.isDebug()) {
+            Log.debug("Prefetched steps {}..{} from LoadAgent, SolarAgent and WindAgent", firstStep, lastStep);
+        }
+    }
 
-        if (dischargeAmount <= 0) {
-            System.out.println("Battery SOC too low to discharge. SOC is at or below 20%.");
-            return 0; // No energy can be discharged
+    // Sends one request per input agent at once and gathers the replies into fanOutReplies as they
+    // arrive; replies still missing after waitMillis stay null
+    private void fanOut(String conversationId, MessageCodec.Opcode[] commands, int firstStep, int lastStep, long waitMillis) {
+        String[] replyWith = new String[INPUT_AGENTS.length];
+        long[] sentNanos = new long[INPUT_AGENTS.length];
+        for (int i = 0; i < INPUT_AGENTS.length; i++) {
+            replyWith[i] = sendRequest(INPUT_AGENTS[i], commands[i], firstStep, lastStep, 0, conversationId);
+            sentNanos[i] = lastRequestNanos;
+            fanOutReplies[i] = null;
         }
 
-        // Send the discharge request to the BatteryAgent
-        ACLMessage batteryRequest = new ACLMessage(ACLMessage.REQUEST);
-        batteryRequest.addReceiver(getAID("BatteryAgent"));
-        batteryRequest.setContent("discharge:" + hour + ":" + dischargeAmount);
-        send(batteryRequest);
+        // Match replies back by reply-with, whatever order they come in
+        int pending = INPUT_AGENTS.length;
+        MessageTemplate template = MessageTemplate.MatchConversationId(conversationId);
+        long endNanos = System.nanoTime() + waitMillis * 1_000_000L;
+        while (pending > 0) {
+            long leftMillis = (endNanos - System.nanoTime()) / 1_000_000L;
+            ACLMessage reply = leftMillis > 0 ? blockingReceive(template, leftMillis) : receive(template);
+            if (reply == null) {
+                for (int i = 0; i < INPUT_AGENTS.length; i++) {
+                    if (replyWith[i] != null) {
+                        metrics.message(commands[i]).recordTimeout();
+                        abandoned.put(replyWith[i], commands[i]);
+                    }
+                }
+                break;
+            }
+            for (int i = 0; i < INPUT_AGENTS.length; i++) {
+                if (replyWith[i] != null && replyWith[i].equals(reply.getInReplyTo())) {
+                    replyWith[i] = null;
+                    pending--;
+                    MessageStats stats = metrics.message(commands[i]);
+                    stats.recordRoundTrip(System.nanoTime() - sentNanos[i]);
+                    if (reply.getPerformative() == INPUT_PERFORMATIVES[i]) {
+                        fanOutReplies[i] = reply;
+                        if (Log.isDebug()) {
+                            Log.debug("Received response from {} for {} {}", INPUT_AGENTS[i], commands[i], firstStep);
+                        }
+                    } else {
+                        stats.recordMismatch();
+                        Log.warn("Unexpected {} reply from {}", ACLMessage.getPerformative(reply.getPerformative()), INPUT_AGENTS[i]);
+                    }
+                    break;
+                }
+            }
+        }
+    }
 
-        ACLMessage batteryResponse = blockingReceive(MessageTemplate.MatchPerformative(ACLMessage.PROPOSE));
+    private double requestEnergyFromBattery(int step, double dischargeAmount) {
+        String replyWith = sendRequest("BatteryAgent", MessageCodec.Opcode.DISCHARGE, step, step, dischargeAmount, "battery");
+        ACLMessage batteryResponse = awaitReply(replyWith, MessageCodec.Opcode.DISCHARGE, ACLMessage.PROPOSE, deadline.requestWait());
         if (batteryResponse != null) {
-            double dischargedAmount = Double.parseDouble(batteryResponse.getContent());
-            System.out.println("Battery discharged: " + dischargedAmount + " kWh for hour " + hour);
+            double dischargedAmount = valueOf(batteryResponse, MessageCodec.Opcode.DISCHARGE);
+            if (Log.isDebug()) {
+                Log.debug("Battery discharged: {} kWh for step {}", dischargedAmount, step);
+            }
             return dischargedAmount; // Actual discharged amount
         } else {
-            System.out.println("No response received for battery discharge request");
-            return 0;
+            Log.warn("No response received for battery discharge request");
+            degraded |= DEGRADED_BATTERY;
+            return 0;  // The grid covers the step
         }
     }
 
-
-
-    private double handleSurplusEnergy(double solarSurplus, double windSurplus) {
-        double totalSurplus = solarSurplus + windSurplus;
-
-        if (totalSurplus > 0) {
-            double batterySOC = getBatterySOC();
-            if (batterySOC < 90) {
-                double spaceAvailable = getBatteryCapacity() * 0.9 - (batterySOC / 100 * getBatteryCapacity());
-                double chargeAmount = Math.min(totalSurplus, spaceAvailable);
-
-                ACLMessage batteryChargeRequest = new ACLMessage(ACLMessage.REQUEST);
-                batteryChargeRequest.addReceiver(getAID("BatteryAgent"));
-                batteryChargeRequest.setContent("charge:0:" + chargeAmount);
-                send(batteryChargeRequest);
-
-                ACLMessage batteryChargeResponse = blockingReceive(MessageTemplate.MatchPerformative(ACLMessage.PROPOSE));
-                if (batteryChargeResponse != null) {
-                    double batteryCharge = Double.parseDouble(batteryChargeResponse.getContent());
-                    System.out.println("Battery charged with: " + batteryCharge + " kWh. Remaining surplus: " + (totalSurplus - batteryCharge) + " kWh sent to the grid.");
-                    return totalSurplus - batteryCharge; // Surplus sent to the grid
-                }
+    private double requestBatteryCharge(double chargeAmount) {
+        String replyWith = sendRequest("BatteryAgent", MessageCodec.Opcode.CHARGE, 0, 0, chargeAmount, "battery");
+        ACLMessage batteryChargeResponse = awaitReply(replyWith, MessageCodec.Opcode.CHARGE, ACLMessage.PROPOSE, deadline.requestWait());
+        if (batteryChargeResponse != null) {
+            double batteryCharge = valueOf(batteryChargeResponse, MessageCodec.Opcode.CHARGE);
+            if (Log.isDebug()) {
+                Log.debug("Battery charged with: {} kWh.", batteryCharge);
             }
-
-            System.out.println("Battery SOC is above 90%. All surplus sent to the grid.");
-            return totalSurplus; // All surplus goes to the grid if no battery space
+            return batteryCharge;
+        } else {
+            Log.warn("No response received for battery charge request");
+            degraded |= DEGRADED_BATTERY;
+            return 0;  // The surplus goes to the grid
         }
-        return 0; // No surplus energy
     }
 
-
-
     private double requestEnergyFromGrid(double remainingLoad) {
-        ACLMessage gridRequest = new ACLMessage(ACLMessage.REQUEST);
-        gridRequest.addReceiver(getAID("GridAgent"));
-        gridRequest.setContent("supply:" + remainingLoad);
-        send(gridRequest);
-        System.out.println("Sending grid supply request");
+        String replyWith = sendRequest("GridAgent", MessageCodec.Opcode.SUPPLY, 0, 0, remainingLoad, "grid");
+        Log.debug("Sending grid supply request");
 
-        ACLMessage gridResponse = blockingReceive(MessageTemplate.MatchPerformative(ACLMessage.CONFIRM));
+        ACLMessage gridResponse = awaitReply(replyWith, MessageCodec.Opcode.SUPPLY, ACLMessage.CONFIRM, deadline.requestWait());
         if (gridResponse != null) {
-            System.out.println("Received grid supply response: " + gridResponse.getContent());
-            return Double.parseDouble(gridResponse.getContent());
+            double supplied = valueOf(gridResponse, MessageCodec.Opcode.SUPPLY);
+            if (Log.isDebug()) {
+                Log.debug("Received grid supply response: {}", supplied);
+            }
+            return supplied;
         } else {
-            System.out.println("No response received for grid supply request");
-            return 0;
+            Log.warn("No response received for grid supply request");
+            degraded |= DEGRADED_GRID;
+            return remainingLoad;  // What the grid always supplies
+        }
+    }
+
+    // Asks the BatteryAgent to push its state after every change, so SOC and capacity are read locally
+    private void subscribeToBatteryState() {
+        ACLMessage subscribe = new ACLMessage(ACLMessage.SUBSCRIBE);
+        subscribe.addReceiver(getAID("BatteryAgent"));
+        subscribe.setConversationId(BatteryMirror.CONVERSATION_ID);
+        codec.encodeRequest(subscribe, MessageCodec.Opcode.SUBSCRIBE_STATE, 0, 0, 0);  // Snapshots come back in this format
+        send(subscribe);
+
+        // The battery agrees before it sends the first snapshot; anything else means no snapshots will come
+        ACLMessage answer = blockingReceive(MessageTemplate.and(
+                MessageTemplate.MatchConversationId(BatteryMirror.CONVERSATION_ID),
+                MessageTemplate.not(MessageTemplate.MatchPerformative(ACLMessage.INFORM))), 10000);
+        if (answer == null || answer.getPerformative() != ACLMessage.AGREE) {
+            Log.info("Battery state subscription not accepted, SOC will be requested every time.");
+            return;
+        }
+        ACLMessage snapshot = blockingReceive(MessageTemplate.and(
+                MessageTemplate.MatchConversationId(BatteryMirror.CONVERSATION_ID),
+                MessageTemplate.MatchPerformative(ACLMessage.INFORM)), 10000);
+        if (snapshot != null && codec.decode(snapshot) && codec.opcode() == MessageCodec.Opcode.BATTERY_STATE) {
+            batteryMirror.update(codec);
+            if (batteryMirror.getMinSOC() != dispatchKernel.getMinSOC() || batteryMirror.getMaxSOC() != dispatchKernel.getMaxSOC()) {
+                // The configured limits stay in force; the battery refuses anything beyond its own
+                Log.warn("BatteryAgent enforces SOC limits " + batteryMirror.getMinSOC() + "%.." + batteryMirror.getMaxSOC()
+                        + "% but dispatch plans with minSOC/maxSOC " + dispatchKernel.getMinSOC() + "%.." + dispatchKernel.getMaxSOC() + "%");
+            }
+            if (Log.isEnabled(Log.Level.INFO)) {
+                Log.info("Mirroring BatteryAgent state: capacity " + batteryMirror.getCapacity() + " kWh, SOC " + batteryMirror.getSOC()
+                        + "%, limits " + batteryMirror.getMinSOC() + "%.." + batteryMirror.getMaxSOC() + "%");
+            }
+        } else {
+            Log.info("No battery state received, SOC will be requested every time.");
+        }
+    }
+
+    // Applies any snapshots the BatteryAgent pushed since the last read
+    private void refreshBatteryMirror() {
+        ACLMessage snapshot;
+        while ((snapshot = receive(BATTERY_STATE)) != null) {
+            if (remoteAgents.contains("BatteryAgent")) {
+                remoteMessages++;  // Pushed without a request
+            }
+            if (snapshot.getPerformative() == ACLMessage.INFORM && codec.decode(snapshot) && codec.opcode() == MessageCodec.Opcode.BATTERY_STATE) {
+                batteryMirror.update(codec);
+            }
         }
     }
 
     private double getBatterySOC() {
-        ACLMessage socRequest = new ACLMessage(ACLMessage.REQUEST);
-        socRequest.addReceiver(getAID("BatteryAgent"));
-        socRequest.setContent("getSOC");
-        send(socRequest);
-        System.out.println("Requesting SOC from BatteryAgent");
+        if (batteryMirror.isInitialized()) {
+            refreshBatteryMirror();
+            return batteryMirror.getSOC();
+        }
+
+        String replyWith = sendRequest("BatteryAgent", MessageCodec.Opcode.GET_SOC, 0, 0, 0, "battery");
+        Log.debug("Requesting SOC from BatteryAgent");
 
-        ACLMessage socResponse = blockingReceive(MessageTemplate.MatchPerformative(ACLMessage.INFORM));
+        ACLMessage socResponse = awaitReply(replyWith, MessageCodec.Opcode.GET_SOC, ACLMessage.INFORM, deadline.requestWait());
         if (socResponse != null) {
-            System.out.println("Received SOC response: " + socResponse.getContent());
-            return Double.parseDouble(socResponse.getContent());
+            lastSOC = valueOf(socResponse, MessageCodec.Opcode.GET_SOC);
+            if (Log.isDebug()) {
+                Log.debug("Received SOC response: {}", lastSOC);
+            }
         } else {
-            System.out.println("No response received for SOC request");
-            return 0;
+            Log.warn("No response received for SOC request");
+            degraded |= DEGRADED_SOC;
         }
+        return lastSOC;  // The last known SOC when the battery did not answer
     }
 
     private double getBatteryCapacity() {
-        // This method should retrieve the battery's capacity, assuming it's static or retrieved once.
-        // You may replace this logic if needed to dynamically query the battery capacity.
-        return 1000.0; // Example capacity, replace with actual logic.
+        if (batteryMirror.isInitialized()) {
+            refreshBatteryMirror();
+            return batteryMirror.getCapacity();  // The BatteryAgent's real capacity
+        }
+        return batteryCapacity;  // Configured capacity when the battery does not publish its state
     }
 
-    private void initializeCSV() {
-        try (CSVWriter writer = new CSVWriter(new FileWriter(CSV_FILE_PATH))) {
-            String[] header = {"Hour", "Load", "SolarGen", "WindGen", "BatteryUsed", "GridUsed", "BatterySOC", "SurplusToGrid"};
-            writer.writeNext(header);
+    // Opens the result log, cut back to the checkpoint when resuming; false when it cannot be opened
+    private boolean initializeResultSink(Checkpoint resumed) {
+        String[] columns = RESULT_COLUMNS.clone();
+        columns[0] = stepLength.columnName();  // "Hour", or "Minute" for shorter steps
+        try {
+            resultSink = resumed != null
+                    ? ResultSink.fromConfig(config, columns, resumed.getOutputBytes(), resumed.getRows())
+                    : ResultSink.fromConfig(config, columns);
+            return true;
         } catch (IOException e) {
-            e.printStackTrace();
+            Log.error("Cannot open the result log", e);
+            return false;
         }
     }
 
-    private void logToCSV(int hour, double load, double solarGen, double windGen, double batteryUsed, double gridUsed, double batterySOC, double surplusToGrid) {
-        try (CSVWriter writer = new CSVWriter(new FileWriter(CSV_FILE_PATH, true))) {
-            String[] data = {
-                    String.valueOf(hour),
-                    String.valueOf(load),
-                    String.valueOf(solarGen),
-                    String.valueOf(windGen),
-                    String.valueOf(batteryUsed),
-                    String.valueOf(gridUsed),
-                    String.valueOf(batterySOC),
-                    String.valueOf(surplusToGrid)
-            };
-            writer.writeNext(data);
+    // The checkpoint to resume from, or null to start at step 0
+    private Checkpoint loadCheckpoint() {
+        if (checkpointer == null || !config.getBoolean("resume", false)) {
+            return null;
+        }
+        if (!Files.exists(checkpointer.getPath())) {
+            Log.info("No checkpoint at {}, starting at step 0", checkpointer.getPath());
+            return null;
+        }
+        try {
+            Checkpoint checkpoint = Checkpoint.read(checkpointer.getPath());
+            if (checkpoint.getStepMinutes() != stepLength.getMinutes()) {
+                Log.warn("Checkpoint {} is for {} min steps, starting at step 0", checkpointer.getPath(), checkpoint.getStepMinutes());
+                return null;
+            }
+            Log.info("Resuming from {} at step {}", checkpointer.getPath(), checkpoint.getStep());
+            return checkpoint;
         } catch (IOException e) {
-            e.printStackTrace();
+            Log.warn("Cannot read checkpoint {}, starting at step 0: {}", checkpointer.getPath(), e.getMessage());
+            return null;
+        }
+    }
+
+    // Hands every agent its saved state back, then moves the clock and totals to the checkpoint
+    private void restoreFrom(Checkpoint checkpoint) {
+        for (Map.Entry<String, double[]> agent : checkpoint.getAgents().entrySet()) {
+            ACLMessage restore = new ACLMessage(ACLMessage.REQUEST);
+            restore.addReceiver(getAID(agent.getKey()));
+            codec.encodeVector(restore, MessageCodec.Opcode.RESTORE_STATE, agent.getValue());
+            restore.setConversationId("checkpoint");
+            String replyWith = getLocalName() + "-" + (++requestCounter);
+            restore.setReplyWith(replyWith);
+            lastRequestNanos = System.nanoTime();
+            send(restore);
+            countRemote(agent.getKey());
+            if (awaitReply(replyWith, MessageCodec.Opcode.RESTORE_STATE, ACLMessage.CONFIRM, deadline.rangeWait()) == null) {
+                Log.warn("{} did not accept its checkpointed state", agent.getKey());
+            }
+        }
+        clock.resumeAt(checkpoint.getStep());
+        energyCost = checkpoint.getEnergyCost();
+    }
+
+    // Collects the agents' state between two steps; the checkpointer writes it in the background
+    private void checkpoint(int nextStep) {
+        if (!checkpointer.tryBegin()) {
+            if (Log.isDebug()) {
+                Log.debug("Checkpoint before step {} skipped, the previous one is still being written", nextStep);
+            }
+            return;
+        }
+        long startNanos = System.nanoTime();
+        Checkpoint checkpoint = new Checkpoint(nextStep, stepLength.getMinutes(), energyCost);
+        for (String agent : STATEFUL_AGENTS) {
+            // The step tells the generators which steps have been dispatched, prefetched or not
+            String replyWith = sendRequest(agent, MessageCodec.Opcode.SNAPSHOT_STATE, nextStep, 0, 0, "checkpoint");
+            ACLMessage reply = awaitReply(replyWith, MessageCodec.Opcode.SNAPSHOT_STATE, ACLMessage.INFORM, deadline.rangeWait());
+            if (reply != null && codec.decode(reply) && codec.opcode() == MessageCodec.Opcode.AGENT_STATE) {
+                checkpoint.putAgent(agent, codec.vector());
+            } else {
+                Log.warn("No state from {} for the checkpoint before step {}", agent, nextStep);
+            }
+        }
+        checkpointer.submit(checkpoint, resultSink != null ? resultSink.mark() : null, System.nanoTime() - startNanos);
+    }
+
+    // One sample per step; the dashboard drops it rather than make the simulation wait
+    private void streamToDashboard(int step, double load, double solarGen, double windGen, double batterySOC, double gridUsed, double surplusToGrid) {
+        dashboardRow[Dashboard.LOAD] = load;
+        dashboardRow[Dashboard.SOLAR] = solarGen;
+        dashboardRow[Dashboard.WIND] = windGen;
+        dashboardRow[Dashboard.SOC] = batterySOC;
+        dashboardRow[Dashboard.IMPORT] = gridUsed;
+        dashboardRow[Dashboard.EXPORT] = surplusToGrid;
+        dashboard.offer(step, dashboardRow);
+    }
+
+    private void logResult(int step, double load, double solarGen, double windGen, double batteryUsed, double gridUsed, double batterySOC, double surplusToGrid) {
+        if (resultSink == null) {
+            return;
+        }
+        resultRow[0] = stepLength.columnValue(step);
+        resultRow[1] = load;
+        resultRow[2] = solarGen;
+        resultRow[3] = windGen;
+        resultRow[4] = batteryUsed;
+        resultRow[5] = gridUsed;
+        resultRow[6] = batterySOC;
+        resultRow[7] = surplusToGrid;
+        resultRow[8] = degraded;
+        resultSink.write(resultRow);
+    }
+
+    @Override
+    protected void takeDown() {
+        if (metrics != null) {
+            metrics.unregister();  // Also the KPIs
+        }
+        if (resultSink != null) {
+            try {
+                resultSink.close();
+                Log.summary("Result log closed after " + resultSink.getRowsWritten() + " rows.");
+            } catch (IOException e) {
+                Log.error("Cannot close the result log", e);
+            }
         }
     }
 }
@@ -0,0 +1,152 @@
+package com.singlejade;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// State of a run between two steps: the next step to simulate and the step length, CentralAgent's
+// running cost, how far the result file got, and the state vector of every agent that keeps state.
+// Binary layout (big-endian): [int magic][int version][int step][int stepMinutes][double energyCost]
+// [long rows][long outputBytes][int agents], per agent [UTF name][int count][count x double], then
+// a CRC32 of all of it.
+public class Checkpoint {
+    public static final int MAGIC = 0x53414743;  // "SAGC"
+    public static final int VERSION = 2;
+
+    private final int step;
+    private final int stepMinutes;
+    private final double energyCost;
+    private final Map<String, double[]> agents = new LinkedHashMap<>();
+    private long rows = -1;         // Result rows before this step, -1 without a result file
+    private long outputBytes = -1;  // Length of the result file holding exactly those rows
+
+    public Checkpoint(int step, int stepMinutes, double energyCost) {
+        this.step = step;
+        this.stepMinutes = stepMinutes;
+        this.energyCost = energyCost;
+    }
+
+    public int getStep() {
+        return step;
+    }
+
+    public int getStepMinutes() {
+        return stepMinutes;
+    }
+
+    public double getEnergyCost() {
+        return energyCost;
+    }
+
+    public void putAgent(String name, double[] state) {
+        agents.put(name, state);
+    }
+
+    public Map<String, double[]> getAgents() {
+        return agents;
+    }
+
+    public void setOutput(long rows, long outputBytes) {
+        this.rows = rows;
+        this.outputBytes = outputBytes;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + agents.size() * 64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(step);
+            out.writeInt(stepMinutes);
+            out.writeDouble(energyCost);
+            out.writeLong(rows);
+            out.writeLong(outputBytes);
+            out.writeInt(agents.size());
+            for (Map.Entry<String, double[]> agent : agents.entrySet()) {
+                out.writeUTF(agent.getKey());
+                out.writeInt(agent.getValue().length);
+                for (double value : agent.getValue()) {
+                    out.writeDouble(value);
+                }
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeInt((int) crc.getValue());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);  // Not thrown by an in-memory stream
+        }
+        return bytes.toByteArray();
+    }
+
+    public static Checkpoint decode(byte[] content) throws IOException {
+        if (content.length < 4) {
+            throw new IOException("Checkpoint is truncated");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length - 4);
+        if ((int) crc.getValue() != ByteBuffer.wrap(content, content.length - 4, 4).getInt()) {
+            throw new IOException("Checkpoint checksum does not match");
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(content, 0, content.length - 4));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a version " + VERSION + " checkpoint");
+        }
+        Checkpoint checkpoint = new Checkpoint(in.readInt(), in.readInt(), in.readDouble());
+        checkpoint.setOutput(in.readLong(), in.readLong());
+        int agents = in.readInt();
+        for (int i = 0; i < agents; i++) {
+            String name = in.readUTF();
+            double[] state = new double[in.readInt()];
+            for (int j = 0; j < state.length; j++) {
+                state[j] = in.readDouble();
+            }
+            checkpoint.putAgent(name, state);
+        }
+        return checkpoint;
+    }
+
+    public static Checkpoint read(Path path) throws IOException {
+        return decode(Files.readAllBytes(path));
+    }
+
+    // Writes and syncs a temporary file next to the target, then renames it over the target, so the
+    // target is always either the previous checkpoint or this one. Returns the bytes written.
+    public int writeAtomically(Path path) throws IOException {
+        byte[] content = encode();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return content.length;
+    }
+}
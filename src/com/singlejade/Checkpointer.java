@@ -0,0 +1,108 @@
+package com.singlejade;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Writes checkpoints on a background thread, so a tick only pays for collecting the agents' state.
+// At most one checkpoint is in flight: one that comes due while the previous is still being
+// written is skipped and counted instead of queued, so a slow disk never holds up the simulation.
+//
+// Settings: "checkpoint=run.ckpt" enables it, "checkpointHours=720" is the interval in hours of
+// simulated time, "resume=true" continues from the checkpoint file when there is one
+public class Checkpointer implements AutoCloseable {
+    private final Path path;
+    private final int everySteps;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "checkpoint-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean busy = new AtomicBoolean();
+    private final LatencyHistogram collectNanos = new LatencyHistogram();  // Agent thread
+    private final LatencyHistogram writeNanos = new LatencyHistogram();    // Writer thread
+    private volatile long skipped;
+    private volatile long failed;
+    private volatile int lastBytes;
+
+    public Checkpointer(Path path, int everySteps) {
+        if (everySteps <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive: " + everySteps);
+        }
+        this.path = path;
+        this.everySteps = everySteps;
+    }
+
+    // null when checkpoints are not configured
+    public static Checkpointer fromConfig(SimulationConfig config, StepLength stepLength) {
+        String file = config.getString("checkpoint", null);
+        return file != null ? new Checkpointer(Paths.get(file), stepLength.steps(config.getInt("checkpointHours", 720))) : null;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // True when a checkpoint of the state before nextStep is due
+    public boolean isDue(int nextStep) {
+        return nextStep % everySteps == 0;
+    }
+
+    // Claims the writer; false (counted as skipped) while the previous checkpoint is still being written
+    public boolean tryBegin() {
+        if (busy.compareAndSet(false, true)) {
+            return true;
+        }
+        skipped++;
+        return false;
+    }
+
+    // Writes the checkpoint once the result file has reached outputMark; call only after tryBegin()
+    public void submit(Checkpoint checkpoint, CompletableFuture<long[]> outputMark, long collectedNanos) {
+        collectNanos.record(collectedNanos);
+        writer.execute(() -> {
+            long start = System.nanoTime();
+            try {
+                if (outputMark != null) {
+                    long[] output = outputMark.get(1, TimeUnit.MINUTES);
+                    checkpoint.setOutput(output[0], output[1]);
+                }
+                lastBytes = checkpoint.writeAtomically(path);
+                writeNanos.record(System.nanoTime() - start);
+                Log.debug("Checkpoint before step {} written to {}", checkpoint.getStep(), path);
+            } catch (IOException | ExecutionException | TimeoutException e) {
+                failed++;
+                Log.warn("Checkpoint before step {} failed: {}", checkpoint.getStep(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                busy.set(false);
+            }
+        });
+    }
+
+    // Waits for the checkpoint being written, if any
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public String summary() {
+        return String.format("Checkpoints every %d steps to %s: %d written (%d bytes), %d skipped, %d failed; "
+                        + "collect mean %.1f us max %.1f us, write mean %.2f ms max %.2f ms",
+                everySteps, path, writeNanos.getCount(), lastBytes, skipped, failed,
+                collectNanos.getMean() / 1e3, collectNanos.getMax() / 1e3, writeNanos.getMean() / 1e6, writeNanos.getMax() / 1e6);
+    }
+}
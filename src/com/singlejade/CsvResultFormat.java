@@ -0,0 +1,58 @@
+package com.singlejade;
+
+import com.opencsv.CSVWriter;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
+
+// Quoted CSV rows, the same layout energy_log.csv has always had. The first column is the hour.
+public class CsvResultFormat implements ResultFormat {
+    private final CSVWriter writer;
+    private final FileChannel channel;
+    private String[] fields;
+
+    public CsvResultFormat(String fileName) throws IOException {
+        this(new FileOutputStream(fileName));
+    }
+
+    CsvResultFormat(FileOutputStream out) {
+        this.writer = new CSVWriter(new BufferedWriter(new OutputStreamWriter(out), 64 * 1024));
+        this.channel = out.getChannel();
+    }
+
+    @Override
+    public void writeHeader(String[] columns) {
+        fields = new String[columns.length];
+        writer.writeNext(columns);
+    }
+
+    @Override
+    public void writeRow(double[] row) {
+        if (fields == null) {
+            fields = new String[row.length];  // Appending to a resumed file, the header is already there
+        }
+        fields[0] = String.valueOf((long) row[0]);
+        for (int i = 1; i < fields.length; i++) {
+            fields[i] = String.valueOf(row[i]);
+        }
+        writer.writeNext(fields);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public long position() throws IOException {
+        return channel.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,204 @@
+package com.singlejade;
+
+import javax.swing.*;
+import java.awt.BasicStroke;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.GridLayout;
+import java.awt.RenderingHints;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+
+// Live charts of a running simulation: load, solar and wind, the battery's SOC, and grid import and
+// export. CentralAgent offers one sample per step to a StepRing and never waits on the window; a Swing
+// Timer drains the ring on the EDT every "dashboardMillis" into a DecimatedSeries, and the charts draw
+// that series as one min/max line per pixel column, so neither draining nor painting depends on how
+// many steps the run has. Samples that arrive while the ring ("dashboardRing" samples) is full are
+// dropped and counted; the result file still has every step.
+public class Dashboard extends JFrame {
+    public static final int LOAD = 0, SOLAR = 1, WIND = 2, SOC = 3, IMPORT = 4, EXPORT = 5;
+    public static final int CHANNELS = 6;
+    private static final String[] NAMES = {"Load", "Solar", "Wind", "SOC", "Import", "Export"};
+    private static final Color[] COLORS = {
+            new Color(60, 60, 60), new Color(230, 150, 0), new Color(30, 110, 200),
+            new Color(40, 150, 60), new Color(200, 40, 40), new Color(130, 60, 170)};
+    private static final int BUCKETS = 2048;  // More than a screen is wide
+
+    private final StepRing ring;
+    private final DecimatedSeries series = new DecimatedSeries(CHANNELS, BUCKETS);
+    private final int horizon;
+    private final StepLength stepLength;
+    private final Chart[] charts;
+    private final JLabel status = new JLabel(" ");
+    private final Timer timer;
+    private long lastRefreshNanos = System.nanoTime();
+    private long lastSamples;
+    private double stepsPerSecond;
+
+    private Dashboard(StepRing ring, int horizon, StepLength stepLength, int refreshMillis) {
+        this.ring = ring;
+        this.horizon = horizon;
+        this.stepLength = stepLength;
+
+        setTitle("Simulation Dashboard");
+        setSize(900, 700);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        charts = new Chart[] {
+                new Chart("Energy per step (kWh)", LOAD, SOLAR, WIND),
+                new Chart("Battery SOC (%)", SOC),
+                new Chart("Grid per step (kWh)", IMPORT, EXPORT)};
+        JPanel chartPanel = new JPanel(new GridLayout(charts.length, 1));
+        for (Chart chart : charts) {
+            chartPanel.add(chart);
+        }
+        add(chartPanel, BorderLayout.CENTER);
+        status.setBorder(BorderFactory.createEmptyBorder(4, 8, 4, 8));
+        add(status, BorderLayout.SOUTH);
+
+        timer = new Timer(refreshMillis, e -> refresh());
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                timer.stop();  // The ring then fills up and further samples are dropped
+            }
+        });
+        timer.start();
+    }
+
+    // Opens the dashboard on the EDT and returns the ring to offer samples to; null without a display
+    public static StepRing open(SimulationConfig config, SimulationClock clock) {
+        if (GraphicsEnvironment.isHeadless()) {
+            Log.warn("No display, running without the dashboard");
+            return null;
+        }
+        StepRing ring = new StepRing(config.getInt("dashboardRing", 1 << 17), CHANNELS);
+        int refreshMillis = config.getInt("dashboardMillis", 40);
+        SwingUtilities.invokeLater(() -> new Dashboard(ring, clock.getHorizon(), clock.getStepLength(), refreshMillis).setVisible(true));
+        return ring;
+    }
+
+    // On the EDT: everything queued since the last refresh goes into the series, then the charts repaint
+    private void refresh() {
+        int drained = ring.drain(series::add, ring.getCapacity());
+        long now = System.nanoTime();
+        long samples = series.getSamples() + ring.getDropped();
+        stepsPerSecond = 0.8 * stepsPerSecond + 0.2 * (samples - lastSamples) * 1e9 / (now - lastRefreshNanos);
+        lastSamples = samples;
+        lastRefreshNanos = now;
+        if (drained > 0) {
+            for (Chart chart : charts) {
+                chart.repaint();
+            }
+        }
+        status.setText(String.format("Step %d of %d (%s)   %,.0f steps/s   %d buckets of %d step(s)   %d dropped",
+                series.getLastStep() + 1, horizon, stepLength, stepsPerSecond, series.buckets(), series.getStepsPerBucket(),
+                ring.getDropped()));
+    }
+
+    // One chart of a few channels over the whole run, from the first step received to the horizon
+    private class Chart extends JComponent {
+        private static final int LEFT = 70, RIGHT = 12, TOP = 22, BOTTOM = 8;
+        private final String title;
+        private final int[] channels;
+        private int previousX;
+        private int previousLowY;
+        private int previousHighY;
+
+        Chart(String title, int... channels) {
+            this.title = title;
+            this.channels = channels;
+            setPreferredSize(new Dimension(900, 200));
+        }
+
+        @Override
+        protected void paintComponent(Graphics graphics) {
+            Graphics2D g = (Graphics2D) graphics.create();
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, getWidth(), getHeight());
+            int width = getWidth() - LEFT - RIGHT, height = getHeight() - TOP - BOTTOM;
+            int buckets = series.buckets();
+            g.setColor(Color.DARK_GRAY);
+            g.setFont(g.getFont().deriveFont(Font.BOLD));
+            g.drawString(title, 8, 15);
+            if (buckets == 0 || width <= 0 || height <= 0) {
+                g.dispose();
+                return;
+            }
+
+            // Value range of this chart's channels, always including zero
+            double low = 0, high = 0;
+            for (int channel : channels) {
+                for (int bucket = 0; bucket < buckets; bucket++) {
+                    low = Math.min(low, series.min(channel, bucket));
+                    high = Math.max(high, series.max(channel, bucket));
+                }
+            }
+            if (high == low) {
+                high = low + 1;
+            }
+            g.setFont(g.getFont().deriveFont(Font.PLAIN));
+            g.setColor(Color.LIGHT_GRAY);
+            g.drawRect(LEFT, TOP, width, height);
+            g.setColor(Color.GRAY);
+            g.drawString(String.format("%.1f", high), 4, TOP + 10);
+            g.drawString(String.format("%.1f", low), 4, TOP + height);
+
+            // The x axis spans from the first step to the horizon, and to the last step if a run goes past it
+            long first = series.getFirstStep();
+            double span = Math.max(horizon - first, series.getLastStep() - first + 1);
+            double stepWidth = width / span;
+            int legendX = LEFT + 200;
+            for (int channel : channels) {
+                g.setColor(COLORS[channel]);
+                g.setStroke(new BasicStroke(1f));
+                previousX = -1;
+                // Buckets that land in the same pixel column merge into one min/max line
+                int column = -1;
+                double columnLow = 0, columnHigh = 0;
+                for (int bucket = 0; bucket < buckets; bucket++) {
+                    int x = LEFT + (int) (bucket * series.getStepsPerBucket() * stepWidth);
+                    double bucketLow = series.min(channel, bucket), bucketHigh = series.max(channel, bucket);
+                    if (x == column) {
+                        columnLow = Math.min(columnLow, bucketLow);
+                        columnHigh = Math.max(columnHigh, bucketHigh);
+                        continue;
+                    }
+                    if (column >= 0) {
+                        drawColumn(g, column, y(columnLow, low, high, height), y(columnHigh, low, high, height));
+                    }
+                    column = x;
+                    columnLow = bucketLow;
+                    columnHigh = bucketHigh;
+                }
+                drawColumn(g, column, y(columnLow, low, high, height), y(columnHigh, low, high, height));
+
+                String legend = String.format("%s %.1f", NAMES[channel], series.latest(channel));
+                g.drawString(legend, legendX, 15);
+                legendX += g.getFontMetrics().stringWidth(legend) + 16;
+            }
+            g.dispose();
+        }
+
+        // A vertical line from the column's minimum to its maximum, joined to the previous column's
+        private void drawColumn(Graphics2D g, int x, int lowY, int highY) {
+            g.drawLine(x, lowY, x, highY);
+            if (previousX >= 0) {
+                g.drawLine(previousX, previousLowY, x, lowY);
+                g.drawLine(previousX, previousHighY, x, highY);
+            }
+            previousX = x;
+            previousLowY = lowY;
+            previousHighY = highY;
+        }
+
+        private int y(double value, double low, double high, int height) {
+            return TOP + height - (int) Math.round((value - low) / (high - low) * height);
+        }
+    }
+}
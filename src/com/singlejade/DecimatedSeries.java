@@ -0,0 +1,106 @@
+package com.singlejade;
+
+// The whole run so far in a fixed number of min/max buckets per channel, for charts that must not
+// slow down as the run grows. Each bucket covers the same number of steps; when every bucket is full,
+// neighbouring pairs are merged and the steps per bucket double, so adding a sample is O(1) amortised
+// and a million steps draw as fast as a thousand. Min and max, rather than a mean, keep every peak
+// and trough visible at any zoom.
+public class DecimatedSeries {
+    private final int channels;
+    private final int capacity;
+    private final double[][] min;  // [channel][bucket]
+    private final double[][] max;
+    private final double[] latest;
+    private long stepsPerBucket = 1;
+    private int fullBuckets;
+    private long inOpenBucket;  // Samples in the bucket after the full ones
+    private long samples;
+    private long firstStep = -1;
+    private long lastStep = -1;
+
+    public DecimatedSeries(int channels, int capacity) {
+        if (channels <= 0 || capacity < 2 || capacity % 2 != 0) {
+            throw new IllegalArgumentException("Need channels and an even number of buckets: " + channels + ", " + capacity);
+        }
+        this.channels = channels;
+        this.capacity = capacity;
+        this.min = new double[channels][capacity];
+        this.max = new double[channels][capacity];
+        this.latest = new double[channels];
+    }
+
+    public void add(long step, double[] values) {
+        int bucket = fullBuckets;
+        for (int channel = 0; channel < channels; channel++) {
+            double value = values[channel];
+            if (inOpenBucket == 0) {
+                min[channel][bucket] = max[channel][bucket] = value;
+            } else if (value < min[channel][bucket]) {
+                min[channel][bucket] = value;
+            } else if (value > max[channel][bucket]) {
+                max[channel][bucket] = value;
+            }
+            latest[channel] = value;
+        }
+        if (firstStep < 0) {
+            firstStep = step;
+        }
+        lastStep = step;
+        samples++;
+        if (++inOpenBucket == stepsPerBucket) {
+            inOpenBucket = 0;
+            if (++fullBuckets == capacity) {
+                halve();
+            }
+        }
+    }
+
+    private void halve() {
+        for (int channel = 0; channel < channels; channel++) {
+            double[] lows = min[channel], highs = max[channel];
+            for (int i = 0; i < capacity / 2; i++) {
+                lows[i] = Math.min(lows[2 * i], lows[2 * i + 1]);
+                highs[i] = Math.max(highs[2 * i], highs[2 * i + 1]);
+            }
+        }
+        fullBuckets = capacity / 2;
+        stepsPerBucket *= 2;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    // Buckets holding samples, the last one possibly partly filled
+    public int buckets() {
+        return fullBuckets + (inOpenBucket > 0 ? 1 : 0);
+    }
+
+    public double min(int channel, int bucket) {
+        return min[channel][bucket];
+    }
+
+    public double max(int channel, int bucket) {
+        return max[channel][bucket];
+    }
+
+    public double latest(int channel) {
+        return latest[channel];
+    }
+
+    public long getStepsPerBucket() {
+        return stepsPerBucket;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    public long getFirstStep() {
+        return firstStep;
+    }
+
+    public long getLastStep() {
+        return lastStep;
+    }
+}
@@ -0,0 +1,75 @@
+package com.singlejade;
+
+import jade.core.Agent;
+import jade.core.behaviours.CyclicBehaviour;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+
+import java.util.stream.IntStream;
+
+// Runs many Load devices inside one agent. The devices are ordinary Load instances that are
+// configured but never started, so they cost a Load object each instead of an agent thread. Requests
+// are answered like a Load agent would, with the sum over the devices; range requests split the
+// steps over the common fork/join pool, so one host keeps every core busy whatever its device count.
+//
+// Arguments: devices=10000 scale=0.00001 profile=..., as AggregationTree passes them when
+// "devicesPerHost" is set
+public class DeviceHost extends Agent {
+    private static final int PARALLEL_STEPS = 24;  // Shorter ranges are summed on the agent thread
+    private Load[] devices;
+    private final MessageCodec codec = new MessageCodec(true);  // Replies follow the format of each request
+
+    @Override
+    protected void setup() {
+        SimulationConfig config = SimulationConfig.fromArguments(getArguments());
+        EnergyProfile profile = EnergyProfile.load(config.getString("profile", EnergyProfile.DEFAULT_PROFILE), StepLength.fromConfig(config));
+        double scale = config.getDouble("scale", 1.0);
+        devices = new Load[config.getInt("devices", 1)];
+        for (int i = 0; i < devices.length; i++) {
+            devices[i] = new Load();
+            devices[i].configure(profile, scale);
+        }
+        Log.info("DeviceHost {} initialized with {} Load devices.", getLocalName(), devices.length);
+
+        addBehaviour(new CyclicBehaviour() {
+            @Override
+            public void action() {
+                ACLMessage msg = receive(MessageTemplate.MatchPerformative(ACLMessage.REQUEST));
+                if (msg == null) {
+                    block();
+                    return;
+                }
+                ACLMessage reply = msg.createReply();
+                MessageCodec.Opcode command = codec.decode(msg) ? codec.opcode() : null;
+                if (command == MessageCodec.Opcode.GET_LOAD_RANGE) {
+                    int firstStep = codec.step(), count = codec.lastStep() - firstStep + 1;
+                    double[] totals = new double[count];
+                    IntStream steps = IntStream.range(0, count);
+                    (count >= PARALLEL_STEPS ? steps.parallel() : steps).forEach(i -> totals[i] = loadAtStep(firstStep + i));
+                    reply.setPerformative(ACLMessage.INFORM);
+                    reply.setByteSequenceContent(ProfileBlock.encode(firstStep, count, step -> totals[step - firstStep]));
+                    if (Log.isDebug()) {
+                        Log.debug("Load of {} devices for steps {}..{} sent.", devices.length, firstStep, codec.lastStep());
+                    }
+                } else if (command == MessageCodec.Opcode.GET_LOAD) {
+                    reply.setPerformative(ACLMessage.INFORM);
+                    codec.encodeReply(reply, loadAtStep(codec.step()));
+                } else {
+                    reply.setPerformative(ACLMessage.NOT_UNDERSTOOD);
+                    reply.setContent("Invalid command");
+                    Log.warn("DeviceHost received invalid command: {}", msg.hasByteSequenceContent() ? "binary " + command : msg.getContent());
+                }
+                send(reply);
+            }
+        });
+    }
+
+    // Devices are summed in a fixed order, so a range and single steps give the same totals
+    private double loadAtStep(int step) {
+        double total = 0;
+        for (Load device : devices) {
+            total += device.getLoadAtStep(step);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,147 @@
+package com.singlejade;
+
+import jade.core.Agent;
+import jade.core.Profile;
+import jade.core.ProfileImpl;
+import jade.core.Runtime;
+import jade.core.behaviours.OneShotBehaviour;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+import jade.wrapper.AgentContainer;
+import jade.wrapper.ControllerException;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Starts a device population under a LoadAgent root in one JVM and reports what each device costs:
+// heap after GC, resident memory and threads, measured against the empty platform. The root is
+// then asked for a day of load and a single hour, which also confirms every device answered.
+//
+// Usage: DeviceScale devices=100000 devicesPerHost=10000 fanIn=16 port=1099
+//        devicesPerHost=0 starts one Load agent (and thread) per device instead
+public class DeviceScale {
+    public static void main(String[] args) throws Exception {
+        SimulationConfig config = SimulationConfig.fromArguments(args);
+        Log.configure(config.has("log") ? config : config.set("log", "warn"));
+        int devices = config.getInt("devices", 100000);
+        int perHost = config.getInt("devicesPerHost", 10000);
+        config.set("devicesPerHost", String.valueOf(perHost));
+
+        Profile profile = new ProfileImpl();
+        profile.setParameter(Profile.LOCAL_PORT, config.getString("port", "1099"));
+        AgentContainer container = Runtime.instance().createMainContainer(profile);
+        EnergyProfile.load(config.getString("profile", EnergyProfile.DEFAULT_PROFILE), StepLength.fromConfig(config));  // Shared by every device
+        Footprint before = Footprint.measure();
+
+        long start = System.nanoTime();
+        int levels = AggregationTree.build(container, "LoadAgent", devices, config.getInt("fanIn", 16), config);
+        CompletableFuture<double[]> answers = new CompletableFuture<>();
+        container.acceptNewAgent("DeviceProbe", new Probe(answers, config.getInt("hours", 24))).start();
+        double[] result = answers.get(config.getLong("timeoutSeconds", 600), TimeUnit.SECONDS);
+        double startSeconds = (System.nanoTime() - start) / 1e9;
+        Footprint after = Footprint.measure();
+
+        String mode = perHost > 0 ? devices + " Load devices in DeviceHost agents of " + perHost : devices + " Load agents";
+        Log.summary(String.format("%s under %d aggregation level(s), all answering after %.2f s", mode, levels, startSeconds));
+        Log.summary(String.format("Per device: %.0f bytes of heap, %.0f bytes resident, %.4f threads (%d threads in total)",
+                (double) (after.heap - before.heap) / devices, after.resident < 0 ? Double.NaN : (double) (after.resident - before.resident) / devices,
+                (double) (after.threads - before.threads) / devices, after.threads));
+        Log.summary(String.format("Day of load: %.1f kWh in %.1f ms, hour 0: %.1f kWh in %.2f ms", result[0], result[1], result[2], result[3]));
+        Log.flush();
+
+        try {
+            container.getPlatformController().kill();
+        } catch (ControllerException e) {
+            Log.warn("Could not shut the platform down: {}", e.getMessage());
+        }
+        System.exit(0);
+    }
+
+    // Heap after GC, resident set size (-1 where /proc is not available) and live threads
+    private static final class Footprint {
+        final long heap;
+        final long resident;
+        final int threads;
+
+        private Footprint(long heap, long resident, int threads) {
+            this.heap = heap;
+            this.resident = resident;
+            this.threads = threads;
+        }
+
+        static Footprint measure() {
+            for (int i = 0; i < 3; i++) {
+                System.gc();
+            }
+            return new Footprint(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(), residentBytes(),
+                    ManagementFactory.getThreadMXBean().getThreadCount());
+        }
+
+        private static long residentBytes() {
+            try {
+                for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                    if (line.startsWith("VmRSS:")) {
+                        return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                // Not Linux
+            }
+            return -1;
+        }
+    }
+
+    // Asks LoadAgent for a range and for one hour, completing with {total, ms, hour 0, ms}
+    private static final class Probe extends Agent {
+        private final CompletableFuture<double[]> answers;
+        private final int hours;
+
+        Probe(CompletableFuture<double[]> answers, int hours) {
+            this.answers = answers;
+            this.hours = hours;
+        }
+
+        @Override
+        protected void setup() {
+            addBehaviour(new OneShotBehaviour(this) {
+                private final MessageCodec codec = new MessageCodec(true);
+
+                @Override
+                public void action() {
+                    double[] result = new double[4];
+                    long start = System.nanoTime();
+                    ACLMessage reply = ask(MessageCodec.Opcode.GET_LOAD_RANGE, hours - 1, "probe-range");
+                    result[1] = (System.nanoTime() - start) / 1e6;
+                    if (reply == null || !ProfileBlock.isBlock(reply.getByteSequenceContent())) {
+                        answers.completeExceptionally(new IllegalStateException("No range from LoadAgent"));
+                        return;
+                    }
+                    double[] values = new double[hours];
+                    ProfileBlock.decode(reply.getByteSequenceContent(), values, 0);
+                    for (double value : values) {
+                        result[0] += value;
+                    }
+
+                    start = System.nanoTime();
+                    reply = ask(MessageCodec.Opcode.GET_LOAD, 0, "probe-hour");
+                    result[3] = (System.nanoTime() - start) / 1e6;
+                    result[2] = reply != null ? codec.decodeReply(reply, MessageCodec.Opcode.GET_LOAD) : Double.NaN;
+                    answers.complete(result);
+                }
+
+                private ACLMessage ask(MessageCodec.Opcode command, int lastHour, String replyWith) {
+                    ACLMessage request = new ACLMessage(ACLMessage.REQUEST);
+                    request.addReceiver(getAID("LoadAgent"));
+                    codec.encodeRequest(request, command, 0, lastHour, 0);
+                    request.setReplyWith(replyWith);
+                    send(request);
+                    return blockingReceive(MessageTemplate.MatchInReplyTo(replyWith));
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.singlejade;
+
+// Merit-order dispatch rules with no JADE dependency: solar, then wind, then the battery down to
+// its minimum SOC, then the grid; surplus charges the battery up to its maximum SOC and the rest
+// is exported. A step writes into a caller-supplied result array and allocates nothing.
+public final class DispatchKernel {
+    // Slots in the step result array
+    public static final int SOLAR_USED = 0;
+    public static final int WIND_USED = 1;
+    public static final int BATTERY_DISCHARGED = 2;
+    public static final int GRID_IMPORT = 3;
+    public static final int BATTERY_CHARGED = 4;
+    public static final int GRID_EXPORT = 5;
+    public static final int SOLAR_SURPLUS = 6;
+    public static final int WIND_SURPLUS = 7;
+    public static final int RESULT_SIZE = 8;
+
+    // Slots in the totals array filled by simulate()
+    public static final int TOTAL_LOAD = 0;
+    public static final int TOTAL_IMPORT = 1;
+    public static final int TOTAL_EXPORT = 2;
+    public static final int TOTAL_DISCHARGED = 3;
+    public static final int TOTAL_CHARGED = 4;
+    public static final int MIN_SOC = 5;
+    public static final int MAX_SOC = 6;
+    public static final int TOTALS_SIZE = 7;
+
+    private final double minSOC;  // Discharge floor in percent
+    private final double maxSOC;  // Charge ceiling in percent
+
+    public DispatchKernel(double minSOC, double maxSOC) {
+        if (minSOC < 0 || maxSOC > 100 || minSOC > maxSOC) {
+            throw new IllegalArgumentException("Invalid SOC limits: " + minSOC + "% .. " + maxSOC + "%");
+        }
+        this.minSOC = minSOC;
+        this.maxSOC = maxSOC;
+    }
+
+    public double getMinSOC() {
+        return minSOC;
+    }
+
+    public double getMaxSOC() {
+        return maxSOC;
+    }
+
+    // Energy the battery may give while staying at or above the minimum SOC
+    public double availableForDischarge(BatteryState battery) {
+        return Math.max(0, battery.charge - battery.capacity * (minSOC / 100.0));
+    }
+
+    // Energy the battery may take before reaching the maximum SOC
+    public double spaceForCharge(BatteryState battery) {
+        if (battery.getSOC() >= maxSOC) {
+            return 0;
+        }
+        return Math.max(0, battery.capacity * (maxSOC / 100.0) - battery.charge);
+    }
+
+    public void step(double load, double solar, double wind, BatteryState battery, double[] result) {
+        step(load, solar, wind, battery, Double.MAX_VALUE, Double.MAX_VALUE, result);
+    }
+
+    // Same as step, with the battery held to at most maxDischarge / maxCharge kWh this hour, as planned by a scheduler
+    public void step(double load, double solar, double wind, BatteryState battery,
+                     double maxDischarge, double maxCharge, double[] result) {
+        double currentLoad = load;
+        double solarUsed, windUsed = 0, batteryDischarged = 0, gridImport = 0, batteryCharged = 0;
+        double solarSurplus, windSurplus = 0;
+
+        // Step 1: Use solar energy to meet the load
+        if (solar >= currentLoad) {
+            solarUsed = currentLoad;
+            solarSurplus = solar - currentLoad;
+            currentLoad = 0;
+        } else {
+            solarUsed = solar;
+            solarSurplus = 0;
+            currentLoad -= solar;
+        }
+
+        // Step 2: Use wind energy if load is not fully met. Wind is only consulted while load
+        // remains, so it adds no surplus in hours that solar covers on its own.
+        if (currentLoad > 0) {
+            if (wind >= currentLoad) {
+                windUsed = currentLoad;
+                windSurplus = wind - currentLoad;
+                currentLoad = 0;
+            } else {
+                windUsed = wind;
+                currentLoad -= wind;
+            }
+        }
+
+        // Step 3: Use battery energy down to the minimum SOC
+        if (currentLoad > 0) {
+            double dischargeAmount = Math.min(Math.min(currentLoad, availableForDischarge(battery)), maxDischarge);
+            if (dischargeAmount > 0) {
+                batteryDischarged = battery.discharge(dischargeAmount);
+                currentLoad -= batteryDischarged;
+            }
+        }
+
+        // Step 4: Use grid energy for any remaining unmet load
+        if (currentLoad > 0) {
+            gridImport = currentLoad;
+        }
+
+        // Step 5: Charge the battery from the surplus up to the maximum SOC, export the rest
+        double totalSurplus = solarSurplus + windSurplus;
+        if (totalSurplus > 0) {
+            double chargeAmount = Math.min(Math.min(totalSurplus, spaceForCharge(battery)), maxCharge);
+            if (chargeAmount > 0) {
+                batteryCharged = battery.charge(chargeAmount);
+            }
+        }
+
+        result[SOLAR_USED] = solarUsed;
+        result[WIND_USED] = windUsed;
+        result[BATTERY_DISCHARGED] = batteryDischarged;
+        result[GRID_IMPORT] = gridImport;
+        result[BATTERY_CHARGED] = batteryCharged;
+        result[GRID_EXPORT] = totalSurplus - batteryCharged;
+        result[SOLAR_SURPLUS] = solarSurplus;
+        result[WIND_SURPLUS] = windSurplus;
+    }
+
+    // Energy the hour still needs after solar and wind (> 0), or the surplus they leave (< 0), counted
+    // the way step counts it: wind only while load remains
+    public static double netDemand(double load, double solar, double wind) {
+        if (solar >= load) {
+            return load - solar;
+        }
+        return load - solar - wind;
+    }
+
+    // Runs count steps starting at offset and accumulates the run totals, reusing the scratch array
+    public void simulate(double[] load, double[] solar, double[] wind, int offset, int count,
+                         BatteryState battery, double[] scratch, double[] totals) {
+        double minSeen = battery.getSOC();
+        double maxSeen = minSeen;
+        for (int i = offset; i < offset + count; i++) {
+            step(load[i], solar[i], wind[i], battery, scratch);
+            totals[TOTAL_LOAD] += load[i];
+            totals[TOTAL_IMPORT] += scratch[GRID_IMPORT];
+            totals[TOTAL_EXPORT] += scratch[GRID_EXPORT];
+            totals[TOTAL_DISCHARGED] += scratch[BATTERY_DISCHARGED];
+            totals[TOTAL_CHARGED] += scratch[BATTERY_CHARGED];
+            double soc = battery.getSOC();
+            if (soc < minSeen) {
+                minSeen = soc;
+            }
+            if (soc > maxSeen) {
+                maxSeen = soc;
+            }
+        }
+        totals[MIN_SOC] = minSeen;
+        totals[MAX_SOC] = maxSeen;
+    }
+}
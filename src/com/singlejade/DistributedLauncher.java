@@ -0,0 +1,153 @@
+package com.singlejade;
+
+import jade.core.Profile;
+import jade.core.ProfileImpl;
+import jade.core.Runtime;
+import jade.wrapper.AgentContainer;
+import jade.wrapper.StaleProxyException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Starts the main container with CentralAgent and launches one local JVM per peripheral container
+// listed in the placement file. Each peripheral runs its placed agents and a node aggregator over
+// its Load agents; the "LoadAgent" root here only talks to those node aggregators. Its messages per
+// request, with CentralAgent's own count of messages to the agents placed on peripherals, are the
+// inter-container traffic per step.
+//
+// Usage: DistributedLauncher placement=src/com/singlejade/placement.properties port=1099 clock=fastforward hours=8760
+public class DistributedLauncher {
+    private static final String[][] REQUIRED_AGENTS = {
+            {"SolarAgent", "com.singlejade.SolarGenerator"},
+            {"WindAgent", "com.singlejade.WindGenerator"},
+            {"GridAgent", "com.singlejade.Grid"}
+    };
+
+    public static void main(String[] args) throws Exception {
+        SimulationConfig config = SimulationConfig.fromArguments(args);
+        Log.configure(config);
+        String placementFile = config.getString("placement", "src/com/singlejade/placement.properties");
+        String port = config.getString("port", "1099");
+        Properties placement = new Properties();
+        try (FileReader reader = new FileReader(placementFile)) {
+            placement.load(reader);
+        }
+        List<String> containers = new ArrayList<>();
+        for (String name : placement.getProperty("containers", "").split(",")) {
+            if (!name.isBlank()) {
+                containers.add(name.trim());
+            }
+        }
+
+        Runtime runtime = Runtime.instance();
+        Profile profile = new ProfileImpl();
+        profile.setParameter(Profile.LOCAL_PORT, port);
+        AgentContainer main = runtime.createMainContainer(profile);
+
+        // Peripheral containers, each in its own JVM
+        List<Process> processes = new ArrayList<>();
+        CountDownLatch ready = new CountDownLatch(containers.size());
+        for (String name : containers) {
+            processes.add(startPeripheral(name, port, placementFile, config, ready));
+        }
+        java.lang.Runtime.getRuntime().addShutdownHook(new Thread(() -> processes.forEach(Process::destroy)));
+        if (!ready.await(config.getLong("startupSeconds", 120), TimeUnit.SECONDS)) {
+            Log.warn("Not all peripheral containers reported READY, starting anyway.");
+        }
+
+        // Everything that was not placed on a peripheral container runs here
+        Set<String> remote = new HashSet<>();
+        for (String name : containers) {
+            for (String[] agent : PeripheralContainer.placedAgents(placement, name)) {
+                remote.add(agent[0]);
+            }
+        }
+        Set<String> placed = new HashSet<>(remote);
+        for (String[] agent : PeripheralContainer.placedAgents(placement, "main")) {
+            main.createNewAgent(agent[0], agent[1], PeripheralContainer.agentArguments(agent[1], config)).start();
+            placed.add(agent[0]);
+        }
+        for (String[] agent : REQUIRED_AGENTS) {
+            if (!placed.contains(agent[0])) {
+                main.createNewAgent(agent[0], agent[1], config.toArguments()).start();
+            }
+        }
+        if (!placed.contains("BatteryAgent")) {
+            Object[] batteryArgs = Main.batteryArguments(config, config.getDouble("capacity", 1000.0), config.getDouble("soc", 50.0) / 100.0);
+            main.createNewAgent("BatteryAgent", "com.singlejade.Battery", batteryArgs).start();
+        }
+
+        // Root over the node aggregators, answering CentralAgent as LoadAgent
+        int totalLoads = PeripheralContainer.totalLoads(placement);
+        // The root sits one level above the tallest node tree, so it outwaits every node aggregator
+        int fanIn = Integer.parseInt(placement.getProperty("fanIn", "16"));
+        int height = 1;
+        List<String> nodes = new ArrayList<>();
+        for (String name : containers) {
+            int loads = Integer.parseInt(placement.getProperty(name + ".loads", "0"));
+            if (loads > 0) {
+                nodes.add(name + "-agg");
+                height = Math.max(height, AggregationTree.levels(loads, fanIn) + 1);
+            }
+        }
+        int mainLoads = Integer.parseInt(placement.getProperty("main.loads", "0"));
+        if (mainLoads > 0) {
+            AggregationTree.build(main, "main-", "main-agg", "node", mainLoads, totalLoads, fanIn, config);
+            nodes.add("main-agg");
+            height = Math.max(height, AggregationTree.levels(mainLoads, fanIn) + 1);
+        }
+        startRoot(main, nodes, height, config);
+        Log.info("Distributed run: {} peripheral container(s), {} Load agents, {} node aggregator(s) under LoadAgent",
+                containers.size(), totalLoads, nodes.size());
+
+        config.set("headless", "true").set("levelSummary", "true").set("remoteAgents", String.join(",", remote));
+        main.createNewAgent("CentralAgent", "com.singlejade.CentralAgent", config.toArguments()).start();
+    }
+
+    private static void startRoot(AgentContainer main, List<String> nodes, int height, SimulationConfig config) throws StaleProxyException {
+        Object[] args = AggregationTree.aggregatorArguments("inter-container", nodes, height, height, config);
+        main.createNewAgent("LoadAgent", "com.singlejade.Aggregator", args).start();
+    }
+
+    private static Process startPeripheral(String name, String port, String placementFile, SimulationConfig config,
+                                           CountDownLatch ready) throws IOException {
+        List<String> command = new ArrayList<>(Arrays.asList(
+                System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                "-cp", System.getProperty("java.class.path"),
+                "com.singlejade.PeripheralContainer",
+                "container=" + name, "host=localhost", "port=" + port, "placement=" + placementFile));
+        for (Object arg : config.toArguments()) {
+            command.add(arg.toString());
+        }
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+
+        // Echo the container's output with its name and watch for READY
+        Thread reader = new Thread(() -> {
+            try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = output.readLine()) != null) {
+                    System.out.println("[" + name + "] " + line);
+                    if (line.startsWith("READY")) {
+                        ready.countDown();
+                    }
+                }
+            } catch (IOException e) {
+                Log.warn("Lost the output of {}: {}", name, e.getMessage());
+            }
+        }, name + "-output");
+        reader.setDaemon(true);
+        reader.start();
+        return process;
+    }
+}
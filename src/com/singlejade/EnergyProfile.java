@@ -0,0 +1,283 @@
+package com.singlejade;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.DoubleBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Read-only load, solar and wind profile shared by every agent in the JVM. A CSV file is parsed
+// once, streaming, into primitive arrays; a ProfileStore (.bin) file is read through its mapping.
+// Values are kWh per row. Rows are hours, or, with a Minute column, as many minutes apart as its
+// first two values; load(file, step) resamples them to the simulation step once per JVM.
+public class EnergyProfile {
+    public static final String DEFAULT_PROFILE = "src/com/singlejade/energy_data.csv";
+    public static final String LOAD_COLUMN = "Load";
+    public static final String SOLAR_COLUMN = "SolarGeneration";
+    public static final String WIND_COLUMN = "WindGeneration";
+    public static final String MINUTE_COLUMN = "Minute";
+
+    private static final Map<Path, EnergyProfile> PROFILES = new ConcurrentHashMap<>();
+    private static final Map<String, EnergyProfile> RESAMPLED = new ConcurrentHashMap<>();
+
+    private final Path path;
+    private final DoubleBuffer load;
+    private final DoubleBuffer solar;
+    private final DoubleBuffer wind;
+    private final int size;
+    private final int stepMinutes;  // Time between rows
+
+    private EnergyProfile(Path path, DoubleBuffer load, DoubleBuffer solar, DoubleBuffer wind, int stepMinutes) {
+        this.path = path;
+        this.load = load;
+        this.solar = solar;
+        this.wind = wind;
+        this.size = load.limit();
+        this.stepMinutes = stepMinutes;
+        if (stepMinutes <= 0) {
+            throw new IllegalArgumentException("Profile " + path + " has rows " + stepMinutes + " minutes apart");
+        }
+        if (size == 0 || solar.limit() != size || wind.limit() != size) {
+            throw new IllegalArgumentException("Profile " + path + " has empty or uneven columns");
+        }
+    }
+
+    // Loads a profile once per JVM; every agent asking for the same file gets the same instance
+    public static EnergyProfile load(String fileName) {
+        Path path = Paths.get(fileName).toAbsolutePath().normalize();
+        return PROFILES.computeIfAbsent(path, p -> {
+            try {
+                return p.toString().endsWith(".bin") ? fromStore(p, ProfileStore.open(p.toString())) : fromCsv(p);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not load profile " + p, e);
+            }
+        });
+    }
+
+    // The profile resampled to the given step: finer steps split each row's energy evenly, coarser
+    // steps add up whole rows. Shared like load(fileName), so each resolution is built once per JVM.
+    public static EnergyProfile load(String fileName, StepLength step) {
+        EnergyProfile profile = load(fileName);
+        if (profile.stepMinutes == step.getMinutes()) {
+            return profile;
+        }
+        return RESAMPLED.computeIfAbsent(profile.path + "@" + step.getMinutes(), key -> profile.resample(step.getMinutes()));
+    }
+
+    // Parses or maps the file again on every call, bypassing the shared instances (for measuring load times)
+    public static EnergyProfile read(String fileName) throws IOException {
+        Path path = Paths.get(fileName).toAbsolutePath().normalize();
+        return path.toString().endsWith(".bin") ? fromStore(path, ProfileStore.read(path.toString())) : fromCsv(path);
+    }
+
+    private static EnergyProfile fromStore(Path path, ProfileStore store) {
+        int stepMinutes = 60;
+        if (store.hasColumn(MINUTE_COLUMN) && store.rows() > 1) {
+            DoubleBuffer minutes = store.column(MINUTE_COLUMN);
+            stepMinutes = (int) (minutes.get(1) - minutes.get(0));
+        } else if (store.hasColumn(MINUTE_COLUMN)) {
+            stepMinutes = 1;
+        }
+        return new EnergyProfile(path, store.column(LOAD_COLUMN), store.column(SOLAR_COLUMN), store.column(WIND_COLUMN), stepMinutes);
+    }
+
+    private static EnergyProfile fromCsv(Path path) throws IOException {
+        long startNanos = System.nanoTime();
+        long startBytes = allocatedBytes();
+
+        double[][] columns = new double[4][1024];  // Load, solar, wind, minute
+        int rows = 0;
+        boolean minutes = false;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null) {
+                throw new IOException("Empty profile: " + path);
+            }
+            String[] names = header.split(",");
+            int[] fieldToColumn = new int[names.length];
+            Arrays.fill(fieldToColumn, -1);
+            int found = 0;
+            for (int f = 0; f < names.length; f++) {
+                String name = names[f].trim().replace("\"", "");
+                int column = name.equals(LOAD_COLUMN) ? 0 : name.equals(SOLAR_COLUMN) ? 1 : name.equals(WIND_COLUMN) ? 2
+                        : name.equals(MINUTE_COLUMN) ? 3 : -1;
+                if (column >= 0) {
+                    fieldToColumn[f] = column;
+                    found += column < 3 ? 1 : 0;
+                    minutes |= column == 3;
+                }
+            }
+            if (found != 3) {
+                throw new IOException("Profile " + path + " needs " + LOAD_COLUMN + ", " + SOLAR_COLUMN + " and " + WIND_COLUMN + " columns");
+            }
+
+            // One pass over the lines, fields are parsed in place without splitting the line
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (rows == columns[0].length) {
+                    for (int c = 0; c < columns.length; c++) {
+                        columns[c] = Arrays.copyOf(columns[c], rows * 2);
+                    }
+                }
+                int field = 0;
+                int start = 0;
+                int length = line.length();
+                while (start <= length && field < fieldToColumn.length) {
+                    int end = line.indexOf(',', start);
+                    if (end < 0) {
+                        end = length;
+                    }
+                    if (fieldToColumn[field] >= 0) {
+                        columns[fieldToColumn[field]][rows] = parseNumber(line, start, end);
+                    }
+                    field++;
+                    start = end + 1;
+                }
+                rows++;
+            }
+        }
+
+        int stepMinutes = !minutes ? 60 : rows > 1 ? (int) (columns[3][1] - columns[3][0]) : 1;
+        EnergyProfile profile = new EnergyProfile(path,
+                DoubleBuffer.wrap(Arrays.copyOf(columns[0], rows)).asReadOnlyBuffer(),
+                DoubleBuffer.wrap(Arrays.copyOf(columns[1], rows)).asReadOnlyBuffer(),
+                DoubleBuffer.wrap(Arrays.copyOf(columns[2], rows)).asReadOnlyBuffer(), stepMinutes);
+        long allocated = allocatedBytes() - startBytes;
+        if (Log.isEnabled(Log.Level.INFO)) {
+            Log.info(String.format("Loaded profile %s: %d rows of %d min in %.2f ms, %s allocated", path.getFileName(), rows, stepMinutes,
+                    (System.nanoTime() - startNanos) / 1e6, startBytes < 0 ? "unknown bytes" : (allocated / 1024) + " KB"));
+        }
+        return profile;
+    }
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Parses a plain decimal field such as "-12.50" without creating a substring. Values whose
+    // mantissa fits in 53 bits with at most 22 decimals are exact this way; anything else
+    // (exponents, quotes, very long numbers) falls back to Double.parseDouble.
+    static double parseNumber(String line, int start, int end) {
+        while (start < end && line.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && line.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (start == end) {
+            return 0;
+        }
+        int i = start;
+        boolean negative = line.charAt(i) == '-';
+        if (negative || line.charAt(i) == '+') {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = 0;
+        boolean seenPoint = false;
+        for (; i < end; i++) {
+            char ch = line.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                mantissa = mantissa * 10 + (ch - '0');
+                digits++;
+                if (seenPoint) {
+                    decimals++;
+                }
+            } else if (ch == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                return Double.parseDouble(line.substring(start, end).replace("\"", ""));
+            }
+        }
+        if (digits == 0 || digits > 15 || decimals >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(line.substring(start, end));
+        }
+        double value = mantissa / POWERS_OF_TEN[decimals];
+        return negative ? -value : value;
+    }
+
+    // Bytes allocated so far by the current thread, or -1 when the JVM does not expose it
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+            if (sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) {
+                return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getStepMinutes() {
+        return stepMinutes;
+    }
+
+    private EnergyProfile resample(int minutes) {
+        double[][] columns = new double[3][];
+        DoubleBuffer[] source = {load, solar, wind};
+        if (stepMinutes % minutes == 0) {
+            int parts = stepMinutes / minutes;
+            for (int c = 0; c < 3; c++) {
+                columns[c] = new double[size * parts];
+                for (int row = 0; row < size; row++) {
+                    Arrays.fill(columns[c], row * parts, (row + 1) * parts, source[c].get(row) / parts);
+                }
+            }
+        } else if (minutes % stepMinutes == 0 && size % (minutes / stepMinutes) == 0) {
+            int rowsPerStep = minutes / stepMinutes;
+            for (int c = 0; c < 3; c++) {
+                columns[c] = new double[size / rowsPerStep];
+                for (int row = 0; row < size; row++) {
+                    columns[c][row / rowsPerStep] += source[c].get(row);
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Cannot resample " + size + " rows of " + stepMinutes + " min in " + path + " to " + minutes + " min steps");
+        }
+        Log.info("Resampled profile {} from {} to {} min steps", path.getFileName(), stepMinutes, minutes);
+        return new EnergyProfile(path, DoubleBuffer.wrap(columns[0]).asReadOnlyBuffer(), DoubleBuffer.wrap(columns[1]).asReadOnlyBuffer(),
+                DoubleBuffer.wrap(columns[2]).asReadOnlyBuffer(), minutes);
+    }
+
+    // Values are kWh per row; rows past the end of the profile wrap around, so long runs replay it
+    public double getLoad(int step) {
+        return load.get(step % size);
+    }
+
+    public double getSolar(int step) {
+        return solar.get(step % size);
+    }
+
+    public double getWind(int step) {
+        return wind.get(step % size);
+    }
+
+    // Copies target.length rows starting at firstStep into the given arrays, wrapping like the getters
+    public void copy(int firstStep, double[] loadTarget, double[] solarTarget, double[] windTarget) {
+        for (int i = 0; i < loadTarget.length; i++) {
+            int index = (firstStep + i) % size;
+            loadTarget[i] = load.get(index);
+            solarTarget[i] = solar.get(index);
+            windTarget[i] = wind.get(index);
+        }
+    }
+}
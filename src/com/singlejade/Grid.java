@@ -6,6 +6,7 @@ import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
 
 public class Grid extends Agent {
+    private final MessageCodec codec = new MessageCodec(true);  // Replies follow the format of each request
 
     public Grid() {
         // No-argument constructor
@@ -13,7 +14,7 @@ public class Grid extends Agent {
 
     @Override
     protected void setup() {
-        System.out.println("GridAgent " + getLocalName() + " initialized.");
+        Log.info("GridAgent {} initialized.", getLocalName());
 
         // Add behavior to respond to power supply requests and handle surplus energy
         addBehaviour(new CyclicBehaviour() {
@@ -21,22 +22,32 @@ public class Grid extends Agent {
             public void action() {
                 ACLMessage msg = receive(MessageTemplate.MatchPerformative(ACLMessage.REQUEST));
                 if (msg != null) {
-                    String content = msg.getContent();
                     ACLMessage reply = msg.createReply();
+                    MessageCodec.Opcode command = codec.decode(msg) ? codec.opcode() : null;
 
-                    if (content.startsWith("supply")) {
-                        // Parse the requested power amount from the message
-                        double requestAmount = Double.parseDouble(content.split(":")[1]);
+                    if (command == MessageCodec.Opcode.SUPPLY) {
+                        double requestAmount = codec.amount();
                         reply.setPerformative(ACLMessage.CONFIRM);
-                        reply.setContent(String.valueOf(requestAmount));  // Grid can always supply the requested amount
-                        System.out.println("Grid supplying " + requestAmount + " kWh.");
-                    } else if (content.startsWith("absorbSurplus")) {
-                        // Parse the surplus amount from the message
-                        double surplusAmount = Double.parseDouble(content.split(":")[1]);
+                        codec.encodeReply(reply, requestAmount);  // Grid can always supply the requested amount
+                        if (Log.isDebug()) {
+                            Log.debug("Grid supplying {} kWh.", requestAmount);
+                        }
+                    } else if (command == MessageCodec.Opcode.ABSORB_SURPLUS) {
+                        double surplusAmount = codec.amount();
                         absorbSurplus(surplusAmount);
                         reply.setPerformative(ACLMessage.INFORM);
-                        reply.setContent("Surplus of " + surplusAmount + " kWh absorbed.");
-                        System.out.println("Grid absorbed surplus of " + surplusAmount + " kWh.");
+                        if (codec.wasBinary()) {
+                            codec.encodeReply(reply, surplusAmount);
+                        } else {
+                            reply.setContent("Surplus of " + surplusAmount + " kWh absorbed.");
+                        }
+                        if (Log.isDebug()) {
+                            Log.debug("Grid absorbed surplus of {} kWh.", surplusAmount);
+                        }
+                    } else {
+                        reply.setPerformative(ACLMessage.NOT_UNDERSTOOD);
+                        reply.setContent("Invalid command");
+                        Log.warn("Grid received invalid command: {}", msg.hasByteSequenceContent() ? "binary " + command : msg.getContent());
                     }
 
                     send(reply);
@@ -50,6 +61,8 @@ public class Grid extends Agent {
     // Method to simulate grid absorbing surplus energy
     public void absorbSurplus(double amount) {
         // In a real-world application, this could be extended to log data or trigger other processes
-        System.out.println("Grid absorbing surplus energy: " + amount + " kWh.");
+        if (Log.isDebug()) {
+            Log.debug("Grid absorbing surplus energy: {} kWh.", amount);
+        }
     }
 }
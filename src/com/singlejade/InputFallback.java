@@ -0,0 +1,62 @@
+package com.singlejade;
+
+import java.util.Arrays;
+
+// Values CentralAgent uses for load, solar or wind when an agent misses its deadline, "fallback=last|forecast|zero":
+// the last value of that input, a forecast that repeats the same step of the previous day (the last value
+// until a day has been seen), or zero. Substituted values enter the history too, so a forecast keeps
+// following the daily shape through a longer outage.
+public class InputFallback {
+    public enum Policy { LAST, FORECAST, ZERO }
+
+    private final Policy policy;
+    private final int day;            // Steps per day
+    private final double[][] daily;   // [input][step % day], value of the latest such step
+    private final int[][] dailyStep;  // Which step each daily entry belongs to
+    private final double[] last;
+    private final int[] lastStep;     // -1 before the first value
+
+    public InputFallback(Policy policy, int inputs, StepLength stepLength) {
+        this.policy = policy;
+        this.day = stepLength.stepsPerDay();
+        this.daily = new double[inputs][day];
+        this.dailyStep = new int[inputs][day];
+        this.last = new double[inputs];
+        this.lastStep = new int[inputs];
+        for (int[] steps : dailyStep) {
+            Arrays.fill(steps, -1);
+        }
+        Arrays.fill(lastStep, -1);
+    }
+
+    public static InputFallback fromConfig(SimulationConfig config, int inputs, StepLength stepLength) {
+        return new InputFallback(Policy.valueOf(config.getString("fallback", "last").toUpperCase()), inputs, stepLength);
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public void record(int input, int step, double value) {
+        daily[input][step % day] = value;
+        dailyStep[input][step % day] = step;
+        if (step >= lastStep[input]) {
+            last[input] = value;
+            lastStep[input] = step;
+        }
+    }
+
+    // The substitute for a missing value, recorded like a received one
+    public double substitute(int input, int step) {
+        double value;
+        if (policy == Policy.ZERO) {
+            value = 0;
+        } else if (policy == Policy.FORECAST && step >= day && dailyStep[input][step % day] == step - day) {
+            value = daily[input][step % day];
+        } else {
+            value = lastStep[input] >= 0 ? last[input] : 0;
+        }
+        record(input, step, value);
+        return value;
+    }
+}
@@ -0,0 +1,194 @@
+package com.singlejade;
+
+// Key figures of the run, kept up to date step by step so they can be read while the simulation is
+// still going instead of being recomputed from the result file afterwards. Each step adds to the
+// running totals of the current day, the current month and the whole run, and feeds the import power
+// into sliding-window maxima over "kpiPeakHours=1,24" hours; all of it is O(1) per step. Days are
+// counted from the first step of the run and months follow a 365-day calendar starting in January.
+//
+// The figures are published over JMX as com.singlejade:type=Kpis,agent=<agent>; a line is logged at
+// info level when a month ends and at debug level when a day ends. After a resume they cover the steps
+// simulated since, and the partial day and month the run resumed in.
+public class KpiEngine implements KpiEngineMBean {
+    private static final int[] MONTH_DAYS = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+    private static final int[] MONTH_OF_DAY = new int[365];
+
+    static {
+        for (int month = 0, day = 0; month < MONTH_DAYS.length; month++) {
+            for (int i = 0; i < MONTH_DAYS[month]; i++) {
+                MONTH_OF_DAY[day++] = month;
+            }
+        }
+    }
+
+    private final StepLength stepLength;
+    private final int[] peakHours;
+    private final SlidingMax[] peaks;
+    private final KpiWindow run = new KpiWindow();
+    private final KpiWindow day = new KpiWindow();
+    private final KpiWindow month = new KpiWindow();
+    private final KpiWindow lastDay = new KpiWindow();
+    private final KpiWindow lastMonth = new KpiWindow();
+    private double capacity;
+    private int currentDay = -1;
+    private int currentMonth = -1;
+
+    public KpiEngine(StepLength stepLength, int... peakHours) {
+        this.stepLength = stepLength;
+        this.peakHours = peakHours.clone();
+        this.peaks = new SlidingMax[peakHours.length];
+        for (int i = 0; i < peakHours.length; i++) {
+            peaks[i] = new SlidingMax(stepLength.steps(peakHours[i]));
+        }
+    }
+
+    public static KpiEngine fromConfig(SimulationConfig config, StepLength stepLength) {
+        String[] windows = config.getString("kpiPeakHours", "1,24").split(",");
+        int[] peakHours = new int[windows.length];
+        for (int i = 0; i < windows.length; i++) {
+            peakHours[i] = Integer.parseInt(windows[i].trim());
+        }
+        return new KpiEngine(stepLength, peakHours);
+    }
+
+    // Battery capacity in kWh that cycles are counted against
+    public synchronized void setCapacity(double capacity) {
+        this.capacity = capacity;
+    }
+
+    // One simulated step, energies in kWh per step. Whatever does not balance is either load that
+    // nothing covered (unserved) or generation that went nowhere (curtailed, such as wind the dispatch
+    // rule did not consult because solar already covered the load).
+    public synchronized void record(int step, double load, double generation, double imported, double exported,
+                                    double charged, double discharged, double cost, boolean degraded) {
+        int stepDay = stepLength.hourOf(step) / 24;
+        if (stepDay != currentDay) {
+            startDay(stepDay);
+        }
+        double balance = load - (generation - charged - exported) - discharged - imported;
+        double unserved = balance > 1e-9 ? balance : 0;      // Below that is rounding
+        double curtailed = balance < -1e-9 ? -balance : 0;
+        double importPower = stepLength.power(imported);
+        run.add(load, generation, imported, exported, charged, discharged, unserved, curtailed, cost, importPower, degraded);
+        day.add(load, generation, imported, exported, charged, discharged, unserved, curtailed, cost, importPower, degraded);
+        month.add(load, generation, imported, exported, charged, discharged, unserved, curtailed, cost, importPower, degraded);
+        for (SlidingMax peak : peaks) {
+            peak.add(importPower);
+        }
+    }
+
+    private void startDay(int newDay) {
+        if (currentDay >= 0) {
+            lastDay.copyFrom(day);
+            if (Log.isDebug()) {
+                Log.debug("Day {}: {}", currentDay, lastDay.describe(capacity));
+            }
+        }
+        day.clear();
+        currentDay = newDay;
+
+        int newMonth = newDay / 365 * 12 + MONTH_OF_DAY[newDay % 365];
+        if (newMonth != currentMonth) {
+            if (currentMonth >= 0) {
+                lastMonth.copyFrom(month);
+                if (Log.isEnabled(Log.Level.INFO)) {
+                    Log.info("Month {}: {}", currentMonth + 1, lastMonth.describe(capacity));
+                }
+            }
+            month.clear();
+            currentMonth = newMonth;
+        }
+    }
+
+    @Override
+    public synchronized long getSteps() {
+        return run.getSteps();
+    }
+
+    @Override
+    public synchronized double getImportKWh() {
+        return run.getImported();
+    }
+
+    @Override
+    public synchronized double getExportKWh() {
+        return run.getExported();
+    }
+
+    @Override
+    public synchronized double getSelfConsumption() {
+        return run.selfConsumption();
+    }
+
+    @Override
+    public synchronized double getSelfSufficiency() {
+        return run.selfSufficiency();
+    }
+
+    @Override
+    public synchronized double getBatteryCycles() {
+        return run.cycles(capacity);
+    }
+
+    @Override
+    public synchronized double getPeakImportKW() {
+        return run.getPeakImport();
+    }
+
+    @Override
+    public synchronized double getUnservedKWh() {
+        return run.getUnserved();
+    }
+
+    @Override
+    public synchronized double getCurtailedKWh() {
+        return run.getCurtailed();
+    }
+
+    @Override
+    public synchronized double getEnergyCost() {
+        return run.getCost();
+    }
+
+    @Override
+    public int[] getPeakWindowHours() {
+        return peakHours.clone();
+    }
+
+    @Override
+    public synchronized double[] getRecentPeakImportKW() {
+        double[] recent = new double[peaks.length];
+        for (int i = 0; i < peaks.length; i++) {
+            recent[i] = peaks[i].max();
+        }
+        return recent;
+    }
+
+    @Override
+    public synchronized String getToday() {
+        return day.describe(capacity);
+    }
+
+    @Override
+    public synchronized String getYesterday() {
+        return lastDay.describe(capacity);
+    }
+
+    @Override
+    public synchronized String getThisMonth() {
+        return month.describe(capacity);
+    }
+
+    @Override
+    public synchronized String getLastMonth() {
+        return lastMonth.describe(capacity);
+    }
+
+    public synchronized String summary() {
+        StringBuilder summary = new StringBuilder("KPIs over the run: ").append(run.describe(capacity));
+        for (int i = 0; i < peaks.length; i++) {
+            summary.append(String.format("%n  Peak import in the last %d h: %.1f kW", peakHours[i], peaks[i].max()));
+        }
+        return summary.toString();
+    }
+}
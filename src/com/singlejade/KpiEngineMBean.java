@@ -0,0 +1,37 @@
+package com.singlejade;
+
+// JMX view of the run's KPIs so far: totals in kWh, ratios as fractions, the most recent sliding-window
+// import peaks in kW, and one-line descriptions of the current and last completed day and month
+public interface KpiEngineMBean {
+    long getSteps();
+
+    double getImportKWh();
+
+    double getExportKWh();
+
+    double getSelfConsumption();
+
+    double getSelfSufficiency();
+
+    double getBatteryCycles();
+
+    double getPeakImportKW();
+
+    double getUnservedKWh();
+
+    double getCurtailedKWh();
+
+    double getEnergyCost();
+
+    int[] getPeakWindowHours();
+
+    double[] getRecentPeakImportKW();
+
+    String getToday();
+
+    String getYesterday();
+
+    String getThisMonth();
+
+    String getLastMonth();
+}
@@ -0,0 +1,120 @@
+package com.singlejade;
+
+// Running totals of one KPI window (a day, a month, the whole run); every ratio is derived from the
+// totals when asked for, so adding a step is a handful of additions. Energies are kWh.
+public class KpiWindow {
+    private long steps;
+    private long degradedSteps;
+    private double load;
+    private double generation;  // Solar and wind
+    private double imported;
+    private double exported;
+    private double charged;
+    private double discharged;
+    private double unserved;
+    private double curtailed;
+    private double cost;
+    private double peakImport;  // kW
+
+    public void add(double load, double generation, double imported, double exported, double charged, double discharged,
+                    double unserved, double curtailed, double cost, double importPower, boolean degraded) {
+        steps++;
+        if (degraded) {
+            degradedSteps++;
+        }
+        this.load += load;
+        this.generation += generation;
+        this.imported += imported;
+        this.exported += exported;
+        this.charged += charged;
+        this.discharged += discharged;
+        this.unserved += unserved;
+        this.curtailed += curtailed;
+        this.cost += cost;
+        if (importPower > peakImport) {
+            peakImport = importPower;
+        }
+    }
+
+    public void copyFrom(KpiWindow other) {
+        steps = other.steps;
+        degradedSteps = other.degradedSteps;
+        load = other.load;
+        generation = other.generation;
+        imported = other.imported;
+        exported = other.exported;
+        charged = other.charged;
+        discharged = other.discharged;
+        unserved = other.unserved;
+        curtailed = other.curtailed;
+        cost = other.cost;
+        peakImport = other.peakImport;
+    }
+
+    public void clear() {
+        steps = degradedSteps = 0;
+        load = generation = imported = exported = charged = discharged = unserved = curtailed = cost = peakImport = 0;
+    }
+
+    public long getSteps() {
+        return steps;
+    }
+
+    public long getDegradedSteps() {
+        return degradedSteps;
+    }
+
+    public double getLoad() {
+        return load;
+    }
+
+    public double getGeneration() {
+        return generation;
+    }
+
+    public double getImported() {
+        return imported;
+    }
+
+    public double getExported() {
+        return exported;
+    }
+
+    public double getUnserved() {
+        return unserved;
+    }
+
+    public double getCurtailed() {
+        return curtailed;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    public double getPeakImport() {
+        return peakImport;
+    }
+
+    // Share of the generation used on site, directly or through the battery, rather than exported or curtailed
+    public double selfConsumption() {
+        return generation > 0 ? (generation - exported - curtailed) / generation : 0;
+    }
+
+    // Share of the load not met by grid imports
+    public double selfSufficiency() {
+        return load > 0 ? 1 - imported / load : 0;
+    }
+
+    // Equivalent full cycles: energy in and out of the battery over twice its capacity
+    public double cycles(double capacity) {
+        return capacity > 0 ? (charged + discharged) / (2 * capacity) : 0;
+    }
+
+    public String describe(double capacity) {
+        return String.format("%d steps, load %.1f kWh, import %.1f kWh, export %.1f kWh, self-consumption %.1f%%, "
+                        + "self-sufficiency %.1f%%, peak import %.1f kW, %.2f battery cycles, curtailed %.1f kWh, unserved %.2f kWh, cost %.2f, %d degraded",
+                steps, load, imported, exported, 100 * selfConsumption(), 100 * selfSufficiency(), peakImport, cycles(capacity),
+                curtailed, unserved, cost, degradedSteps);
+    }
+}
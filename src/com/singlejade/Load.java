@@ -1,18 +1,14 @@
 package com.singlejade;
 
-import com.opencsv.CSVReader;
-import com.opencsv.exceptions.CsvException;
 import jade.core.Agent;
 import jade.core.behaviours.CyclicBehaviour;
 import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
 
-import java.io.FileReader;
-import java.io.IOException;
-import java.util.List;
-
 public class Load extends Agent {
-    private double[] hourlyLoad;
+    private EnergyProfile profile;  // Shared, read-only profile
+    private double scale = 1.0;     // Share of the profile this load represents, e.g. one household of many
+    private final MessageCodec codec = new MessageCodec(true);  // Replies follow the format of each request
 
     public Load() {
         // No-argument constructor
@@ -20,45 +16,57 @@ public class Load extends Agent {
 
     @Override
     protected void setup() {
-        System.out.println("LoadAgent " + getLocalName() + " initialized.");
-        loadDataFromCSV("src/com/singlejade/energy_data.csv");
+        Log.info("LoadAgent {} initialized.", getLocalName());
+        // Profile file from the agent arguments, either the CSV or a converted ProfileStore (.bin),
+        // parsed once, resampled to the simulation step and shared with the other agents
+        SimulationConfig config = SimulationConfig.fromArguments(getArguments());
+        configure(EnergyProfile.load(config.getString("profile", EnergyProfile.DEFAULT_PROFILE), StepLength.fromConfig(config)),
+                config.getDouble("scale", 1.0));
 
         // Add behavior to respond to requests for load values
         addBehaviour(new CyclicBehaviour() {
             @Override
             public void action() {
                 ACLMessage msg = receive(MessageTemplate.MatchPerformative(ACLMessage.REQUEST));
-                if (msg != null && msg.getContent().startsWith("getLoad")) {
-                    int hour = Integer.parseInt(msg.getContent().split(":")[1]);
-                    double loadValue = getLoadAtHour(hour);
-
-                    ACLMessage reply = msg.createReply();
+                if (msg == null) {
+                    block();
+                    return;
+                }
+                ACLMessage reply = msg.createReply();
+                MessageCodec.Opcode command = codec.decode(msg) ? codec.opcode() : null;
+                if (command == MessageCodec.Opcode.GET_LOAD_RANGE) {
+                    // Whole range of steps in one binary block
+                    int firstStep = codec.step(), count = codec.lastStep() - firstStep + 1;
                     reply.setPerformative(ACLMessage.INFORM);
-                    reply.setContent(String.valueOf(loadValue));
-                    System.out.println("Load for hour " + hour + " is " + loadValue + " kWh.");
-                    send(reply);
+                    reply.setByteSequenceContent(ProfileBlock.encode(firstStep, count, Load.this::getLoadAtStep));
+                    if (Log.isDebug()) {
+                        Log.debug("Load for steps {}..{} sent.", firstStep, codec.lastStep());
+                    }
+                } else if (command == MessageCodec.Opcode.GET_LOAD) {
+                    int step = codec.step();
+                    double loadValue = getLoadAtStep(step);
+                    reply.setPerformative(ACLMessage.INFORM);
+                    codec.encodeReply(reply, loadValue);
+                    if (Log.isDebug()) {
+                        Log.debug("Load for step {} is {} kWh.", step, loadValue);
+                    }
                 } else {
-                    block();
+                    reply.setPerformative(ACLMessage.NOT_UNDERSTOOD);
+                    reply.setContent("Invalid command");
+                    Log.warn("LoadAgent received invalid command: {}", msg.hasByteSequenceContent() ? "binary " + command : msg.getContent());
                 }
+                send(reply);
             }
         });
     }
 
-    private void loadDataFromCSV(String fileName) {
-        try (CSVReader reader = new CSVReader(new FileReader(fileName))) {
-            List<String[]> data = reader.readAll();
-            hourlyLoad = new double[24];
-            for (int i = 1; i < data.size(); i++) {  // Skip header row
-                hourlyLoad[i - 1] = Double.parseDouble(data.get(i)[1]);
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        } catch (CsvException e) {
-            throw new RuntimeException(e);
-        }
+    // Also used by DeviceHost, which runs Load instances as devices without starting them as agents
+    void configure(EnergyProfile profile, double scale) {
+        this.profile = profile;
+        this.scale = scale;
     }
 
-    public double getLoadAtHour(int hour) {
-        return hourlyLoad[hour];
+    public double getLoadAtStep(int step) {
+        return profile.getLoad(step) * scale;
     }
 }
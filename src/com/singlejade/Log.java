@@ -0,0 +1,170 @@
+package com.singlejade;
+
+import java.io.PrintStream;
+
+// Console logging for all agents of this JVM. Statements below the configured level return before
+// anything is formatted, so "{}" templates with object arguments cost a level check when disabled.
+// Primitive arguments are boxed before the call, so per-step statements with numbers, like messages
+// built inline, go behind isDebug() or isEnabled(). Enabled lines are formatted on
+// the calling thread and handed to an AsyncLogWriter, which prints them in order from its own
+// thread. Summaries of a run are written at every level.
+//
+// Settings: "log=debug|info|warn|error|quiet" (quiet keeps only summaries and warnings, default
+// info), "logAsync=false" to print on the calling thread, "logBuffer=16384" lines in the ring.
+public final class Log {
+    public enum Level { DEBUG, INFO, WARN, ERROR }
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    private static volatile int threshold = Level.INFO.ordinal();
+    private static volatile AsyncLogWriter writer;
+    private static volatile PrintStream out = System.out;
+
+    private Log() {
+    }
+
+    public static void configure(SimulationConfig config) {
+        String name = config.getString("log", "info").toUpperCase();
+        Level level = name.equals("QUIET") ? Level.WARN : Level.valueOf(name);
+        configure(level, config.getBoolean("logAsync", true), config.getInt("logBuffer", 16384), System.out);
+        if (level.compareTo(Level.WARN) >= 0) {
+            // JADE's own platform messages go through java.util.logging
+            java.util.logging.Logger.getLogger("").setLevel(java.util.logging.Level.WARNING);
+        }
+    }
+
+    public static synchronized void configure(Level level, boolean async, int capacity, PrintStream target) {
+        AsyncLogWriter previous = writer;
+        if (previous != null) {
+            previous.close();
+        }
+        out = target;
+        writer = async ? new AsyncLogWriter(capacity, target) : null;
+        threshold = level.ordinal();
+    }
+
+    public static boolean isDebug() {
+        return threshold <= 0;
+    }
+
+    public static boolean isEnabled(Level level) {
+        return threshold <= level.ordinal();
+    }
+
+    public static void debug(String message) {
+        if (threshold <= 0) {
+            write(message, true);
+        }
+    }
+
+    public static void debug(String template, Object a) {
+        if (threshold <= 0) {
+            write(format(template, a, null, null, 1), true);
+        }
+    }
+
+    public static void debug(String template, Object a, Object b) {
+        if (threshold <= 0) {
+            write(format(template, a, b, null, 2), true);
+        }
+    }
+
+    public static void debug(String template, Object a, Object b, Object c) {
+        if (threshold <= 0) {
+            write(format(template, a, b, c, 3), true);
+        }
+    }
+
+    public static void info(String message) {
+        if (threshold <= 1) {
+            write(message, true);
+        }
+    }
+
+    public static void info(String template, Object a) {
+        if (threshold <= 1) {
+            write(format(template, a, null, null, 1), true);
+        }
+    }
+
+    public static void info(String template, Object a, Object b) {
+        if (threshold <= 1) {
+            write(format(template, a, b, null, 2), true);
+        }
+    }
+
+    public static void info(String template, Object a, Object b, Object c) {
+        if (threshold <= 1) {
+            write(format(template, a, b, c, 3), true);
+        }
+    }
+
+    public static void warn(String message) {
+        if (threshold <= 2) {
+            write(message, false);
+        }
+    }
+
+    public static void warn(String template, Object a) {
+        if (threshold <= 2) {
+            write(format(template, a, null, null, 1), false);
+        }
+    }
+
+    public static void warn(String template, Object a, Object b) {
+        if (threshold <= 2) {
+            write(format(template, a, b, null, 2), false);
+        }
+    }
+
+    public static void warn(String template, Object a, Object b, Object c) {
+        if (threshold <= 2) {
+            write(format(template, a, b, c, 3), false);
+        }
+    }
+
+    public static void error(String message, Throwable cause) {
+        write(message + ": " + cause, false);
+    }
+
+    // Per-run results, kept at every level
+    public static void summary(String message) {
+        write(message, false);
+    }
+
+    // Blocks until every line logged so far has been printed
+    public static void flush() {
+        AsyncLogWriter current = writer;
+        if (current != null) {
+            current.flush();
+        }
+    }
+
+    public static long getDropped() {
+        AsyncLogWriter current = writer;
+        return current != null ? current.getDropped() : 0;
+    }
+
+    // Debug and info lines may be dropped when the ring is full; warnings and summaries wait for room
+    private static void write(String line, boolean droppable) {
+        AsyncLogWriter current = writer;
+        if (current == null || !current.offer(line, droppable)) {
+            out.println(line);
+        }
+    }
+
+    static String format(String template, Object a, Object b, Object c, int count) {
+        StringBuilder line = BUFFER.get();
+        line.setLength(0);
+        int from = 0;
+        for (int i = 0; i < count; i++) {
+            int at = template.indexOf("{}", from);
+            if (at < 0) {
+                break;
+            }
+            line.append(template, from, at).append(i == 0 ? a : i == 1 ? b : c);
+            from = at + 2;
+        }
+        return line.append(template, from, template.length()).toString();
+    }
+}
@@ -10,44 +10,93 @@ import jade.wrapper.AgentController;
 import jade.wrapper.ControllerException;
 import jade.wrapper.StaleProxyException;
 
+import java.util.Arrays;
+
 public class Main {
     public static void main(String[] args) {
+        // Command line settings, e.g. "headless=true clock=fastforward hours=8760 capacity=1000 soc=50"
+        SimulationConfig config = SimulationConfig.fromArguments(args);
+        Log.configure(config);  // "log=quiet" keeps only the per-run summaries
+        boolean headless = config.getBoolean("headless", false);
+
         // Initialize JADE runtime
         Runtime runtime = Runtime.instance();
         Profile profile = new ProfileImpl();
         AgentContainer container = runtime.createMainContainer(profile);
 
         try {
-            // Start the RMA agent for monitoring
-            AgentController rma = container.createNewAgent("rma", "jade.tools.rma.rma", null);
-            rma.start();
+            if (headless) {
+                // Start the BatteryAgent directly instead of through the configuration GUI
+                Object[] batteryArgs = batteryArguments(config, config.getDouble("capacity", 1000.0), config.getDouble("soc", 50.0) / 100.0);
+                container.createNewAgent("BatteryAgent", "com.singlejade.Battery", batteryArgs).start();
+            } else {
+                // Start the RMA agent for monitoring
+                AgentController rma = container.createNewAgent("rma", "jade.tools.rma.rma", null);
+                rma.start();
 
-            // Start the Sniffer agent
-            AgentController sniffer = container.createNewAgent("sniffer", "jade.tools.sniffer.Sniffer", null);
-            sniffer.start();
+                // Start the Sniffer agent
+                AgentController sniffer = container.createNewAgent("sniffer", "jade.tools.sniffer.Sniffer", null);
+                sniffer.start();
 
-            // Start the GUI for battery configuration (this will start BatteryAgent)
-            BatteryGUI batteryGUI = new BatteryGUI(container);
-            batteryGUI.setVisible(true);
+                // Start the GUI for battery configuration (this will start BatteryAgent)
+                BatteryGUI batteryGUI = new BatteryGUI(container, config);
+                batteryGUI.setVisible(true);
+            }
 
             // Start other agents (LoadAgent, SolarGenerator, WindAgent, GridAgent, CentralAgent)
-            container.createNewAgent("LoadAgent", "com.singlejade.Load", null).start();
-            container.createNewAgent("SolarAgent", "com.singlejade.SolarGenerator", null).start();
-            container.createNewAgent("WindAgent", "com.singlejade.WindGenerator", null).start();
+            int loads = config.getInt("loads", 1);
+            if (loads > 1) {
+                // Many households behind a tree of aggregators whose root answers as LoadAgent
+                int levels = AggregationTree.build(container, "LoadAgent", loads, config.getInt("fanIn", 16), config);
+                Log.info("Started {} Load agents under {} aggregation level(s)", loads, levels);
+            } else {
+                container.createNewAgent("LoadAgent", "com.singlejade.Load", config.toArguments()).start();
+            }
+            // "solarUnits=N windUnits=N" split generation into N plants behind aggregators the same way
+            startGeneration(container, "SolarAgent", "com.singlejade.SolarGenerator", "Solar", config.getInt("solarUnits", 1), config);
+            startGeneration(container, "WindAgent", "com.singlejade.WindGenerator", "Wind", config.getInt("windUnits", 1), config);
             container.createNewAgent("GridAgent", "com.singlejade.Grid", null).start();
-            container.createNewAgent("CentralAgent", "com.singlejade.CentralAgent", null).start();
+            container.createNewAgent("CentralAgent", "com.singlejade.CentralAgent", config.toArguments()).start();
 
-            // Set agents to be sniffed (optional, if you want to automate the selection)
-            String agentsToSniff = "LoadAgent;SolarAgent;WindAgent;GridAgent;CentralAgent";
-            ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
-            msg.addReceiver(new AID(container.getAgent("sniffer").getName(), AID.ISLOCALNAME));
-            msg.setContent(agentsToSniff);
-            container.getAgent("sniffer").putO2AObject(msg, true);
+            if (!headless) {
+                // Set agents to be sniffed (optional, if you want to automate the selection)
+                String agentsToSniff = "LoadAgent;SolarAgent;WindAgent;GridAgent;CentralAgent";
+                ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
+                msg.addReceiver(new AID(container.getAgent("sniffer").getName(), AID.ISLOCALNAME));
+                msg.setContent(agentsToSniff);
+                container.getAgent("sniffer").putO2AObject(msg, true);
+            }
 
         } catch (StaleProxyException e) {
-            e.printStackTrace();
+            Log.error("Cannot start the agents", e);
         } catch (ControllerException e) {
             throw new RuntimeException(e);
         }
     }
+
+    private static void startGeneration(AgentContainer container, String rootName, String className, String unitName, int units,
+                                        SimulationConfig config) throws StaleProxyException {
+        if (units > 1) {
+            int levels = AggregationTree.buildGeneration(container, rootName, className, unitName, units, config.getInt("fanIn", 16), config);
+            Log.info("Started {} {} units under {} aggregation level(s)", units, unitName, levels);
+        } else {
+            container.createNewAgent(rootName, className, config.toArguments()).start();
+        }
+    }
+
+    // BatteryAgent arguments for a capacity and initial SOC (a fraction), with the SOC limits, fleet and
+    // step length from the settings so the battery enforces the same limits CentralAgent plans with
+    static Object[] batteryArguments(SimulationConfig config, double capacity, double initialSOC) {
+        Object[] batteryArgs = new Object[] {
+                capacity, initialSOC,
+                config.getDouble("minSOC", 20.0), config.getDouble("maxSOC", 90.0),
+                "units=" + config.getInt("units", 1), "policy=" + config.getString("policy", "proportional"),
+                "unitPower=" + config.getDouble("unitPower", 0), "stepMinutes=" + StepLength.fromConfig(config).getMinutes()
+        };
+        if (config.has("fleet")) {
+            batteryArgs = Arrays.copyOf(batteryArgs, batteryArgs.length + 1);
+            batteryArgs[batteryArgs.length - 1] = "fleet=" + config.getString("fleet", null);
+        }
+        return batteryArgs;
+    }
 }
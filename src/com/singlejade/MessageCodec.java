@@ -0,0 +1,404 @@
+package com.singlejade;
+
+import jade.lang.acl.ACLMessage;
+
+// Typed, versioned content for the messages exchanged between the agents. Binary content starts
+// with [byte magic][byte version][byte opcode] followed by a fixed layout for the opcode:
+//   scalar ops:    [int step][int lastStep][double amount]               (19 bytes)
+//   RANGE_VALUES:  [int firstStep][int count][count x double]             (ProfileBlock)
+//   BATTERY_STATE: [long version][double charge, capacity, soc, min, max] (51 bytes)
+//   AGENT_STATE, RESTORE_STATE: [int count][count x double]             (checkpoints)
+// Replies carry the opcode of their request, so a reply to the wrong command is detected.
+// The old text commands ("getLoad:3", "discharge:3:120.0", ...) are still decoded and answered
+// in kind, and text can be chosen for outgoing requests.
+//
+// A codec keeps its decoded fields in place and is reused for every message of one agent; only the
+// payload array handed to the ACLMessage is new, because the message keeps a reference to it.
+public final class MessageCodec {
+    public static final byte MAGIC = (byte) 0xA7;
+    public static final byte VERSION = 1;
+    public static final int HEADER_BYTES = 3;
+    public static final int SCALAR_BYTES = HEADER_BYTES + 16;
+    public static final int STATE_BYTES = HEADER_BYTES + 48;
+    public static final int VECTOR_BYTES = HEADER_BYTES + 4;  // Plus 8 per value
+
+    public enum Opcode {
+        GET_LOAD, GET_ENERGY, GET_LOAD_RANGE, GET_ENERGY_RANGE, GET_SURPLUS,
+        DISCHARGE, CHARGE, GET_SOC, SUPPLY, ABSORB_SURPLUS,
+        RANGE_VALUES, BATTERY_STATE, SUBSCRIBE_STATE,
+        SNAPSHOT_STATE, AGENT_STATE, RESTORE_STATE;
+
+        private static final Opcode[] VALUES = values();
+
+        static Opcode of(int code) {
+            return code >= 0 && code < VALUES.length ? VALUES[code] : null;
+        }
+    }
+
+    private final boolean binary;  // Format of requests this codec creates
+
+    // Fields of the last decoded message
+    private Opcode opcode;
+    private boolean decodedBinary;
+    private int step;
+    private int lastStep;
+    private double amount;
+    private long stateVersion;
+    private final double[] state = new double[5];
+    private double[] vector;
+    private long mismatches;
+
+    public MessageCodec(boolean binary) {
+        this.binary = binary;
+    }
+
+    public static MessageCodec fromConfig(SimulationConfig config) {
+        return new MessageCodec(!config.getString("codec", "binary").equalsIgnoreCase("text"));
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    // Requests
+
+    public void encodeRequest(ACLMessage msg, Opcode op, int step, int lastStep, double amount) {
+        if (binary) {
+            msg.setByteSequenceContent(scalar(op, step, lastStep, amount));
+        } else {
+            msg.setContent(toText(op, step, lastStep, amount));
+        }
+    }
+
+    // Decodes a request or notification; returns false (with opcode null) for anything unknown
+    public boolean decode(ACLMessage msg) {
+        opcode = null;
+        decodedBinary = msg.hasByteSequenceContent();
+        if (decodedBinary) {
+            byte[] content = msg.getByteSequenceContent();
+            if (content.length < HEADER_BYTES || content[0] != MAGIC || content[1] != VERSION) {
+                return false;
+            }
+            Opcode op = Opcode.of(content[2]);
+            if (op == null || !decodeLayout(op, content)) {
+                return false;
+            }
+            opcode = op;
+        } else if (!parseText(msg.getContent())) {
+            return false;
+        }
+        if ((opcode == Opcode.GET_LOAD_RANGE || opcode == Opcode.GET_ENERGY_RANGE) && lastStep < step) {
+            opcode = null;  // Empty or inverted range
+            return false;
+        }
+        return true;
+    }
+
+    // Reads the layout of op; false when the content is too short for it or, for a vector, not
+    // exactly its length, so a malformed state never falls through to another layout
+    private boolean decodeLayout(Opcode op, byte[] content) {
+        switch (op) {
+            case BATTERY_STATE:
+                if (content.length < STATE_BYTES) {
+                    return false;
+                }
+                stateVersion = getLong(content, HEADER_BYTES);
+                for (int i = 0; i < state.length; i++) {
+                    state[i] = getDouble(content, HEADER_BYTES + 8 + i * 8);
+                }
+                return true;
+            case AGENT_STATE:
+            case RESTORE_STATE:
+                if (content.length < VECTOR_BYTES || content.length != VECTOR_BYTES + 8L * getInt(content, HEADER_BYTES)) {
+                    return false;
+                }
+                vector = new double[getInt(content, HEADER_BYTES)];
+                for (int i = 0; i < vector.length; i++) {
+                    vector[i] = getDouble(content, VECTOR_BYTES + i * 8);
+                }
+                return true;
+            case RANGE_VALUES:
+                if (content.length < HEADER_BYTES + 8) {
+                    return false;
+                }
+                step = getInt(content, HEADER_BYTES);
+                lastStep = step + getInt(content, HEADER_BYTES + 4) - 1;
+                return true;
+            default:
+                if (content.length < SCALAR_BYTES) {
+                    return false;
+                }
+                step = getInt(content, HEADER_BYTES);
+                lastStep = getInt(content, HEADER_BYTES + 4);
+                amount = getDouble(content, HEADER_BYTES + 8);
+                return true;
+        }
+    }
+
+    public Opcode opcode() {
+        return opcode;
+    }
+
+    public int step() {
+        return step;
+    }
+
+    public int lastStep() {
+        return lastStep;
+    }
+
+    public double amount() {
+        return amount;
+    }
+
+    public long stateVersion() {
+        return stateVersion;
+    }
+
+    // charge, capacity, soc, minSOC, maxSOC of the last decoded BATTERY_STATE
+    public double state(int index) {
+        return state[index];
+    }
+
+    // Values of the last decoded AGENT_STATE or RESTORE_STATE
+    public double[] vector() {
+        return vector;
+    }
+
+    // Replies, in the same format as the request that was just decoded
+
+    public void encodeReply(ACLMessage reply, double value) {
+        if (decodedBinary) {
+            reply.setByteSequenceContent(scalar(opcode, step, lastStep, value));
+        } else {
+            reply.setContent(String.valueOf(value));
+        }
+    }
+
+    // Value of a reply to a request with the given opcode, or NaN when the reply is for another command
+    public double decodeReply(ACLMessage reply, Opcode expected) {
+        if (reply.hasByteSequenceContent()) {
+            if (!decode(reply) || opcode != expected) {
+                mismatches++;
+                Log.warn("Mismatched reply: expected {}, got {}", expected, opcode);
+                return Double.NaN;
+            }
+            return amount;
+        }
+        decodedBinary = false;
+        try {
+            return Double.parseDouble(reply.getContent());
+        } catch (NumberFormatException | NullPointerException e) {
+            mismatches++;
+            Log.warn("Mismatched reply: expected a value for {}, got {}", expected, reply.getContent());
+            return Double.NaN;
+        }
+    }
+
+    public long getMismatches() {
+        return mismatches;
+    }
+
+    // Agent state for checkpoints: RESTORE_STATE requests in this codec's format, AGENT_STATE replies
+    // in the format of the SNAPSHOT_STATE request that was just decoded
+
+    public void encodeVector(ACLMessage msg, Opcode op, double[] values) {
+        encodeVector(msg, binary, op, values);
+    }
+
+    public void encodeVectorReply(ACLMessage reply, double[] values) {
+        encodeVector(reply, decodedBinary, Opcode.AGENT_STATE, values);
+    }
+
+    private static void encodeVector(ACLMessage msg, boolean asBinary, Opcode op, double[] values) {
+        if (asBinary) {
+            byte[] content = header(op, VECTOR_BYTES + 8 * values.length);
+            putInt(content, HEADER_BYTES, values.length);
+            for (int i = 0; i < values.length; i++) {
+                putDouble(content, VECTOR_BYTES + i * 8, values[i]);
+            }
+            msg.setByteSequenceContent(content);
+        } else {
+            StringBuilder text = new StringBuilder(op == Opcode.AGENT_STATE ? "agentState" : "restore");
+            for (double value : values) {
+                text.append(':').append(value);
+            }
+            msg.setContent(text.toString());
+        }
+    }
+
+    // Battery state snapshots
+
+    public void encodeState(ACLMessage msg, boolean asBinary, long version, double charge, double capacity,
+                            double soc, double minSOC, double maxSOC) {
+        if (asBinary) {
+            byte[] content = header(Opcode.BATTERY_STATE, STATE_BYTES);
+            putLong(content, HEADER_BYTES, version);
+            double[] values = {charge, capacity, soc, minSOC, maxSOC};
+            for (int i = 0; i < values.length; i++) {
+                putDouble(content, HEADER_BYTES + 8 + i * 8, values[i]);
+            }
+            msg.setByteSequenceContent(content);
+        } else {
+            msg.setContent("state:" + version + ":" + charge + ":" + capacity + ":" + soc + ":" + minSOC + ":" + maxSOC);
+        }
+    }
+
+    public boolean wasBinary() {
+        return decodedBinary;
+    }
+
+    // Layout helpers
+
+    private static byte[] scalar(Opcode op, int step, int lastStep, double amount) {
+        byte[] content = header(op, SCALAR_BYTES);
+        putInt(content, HEADER_BYTES, step);
+        putInt(content, HEADER_BYTES + 4, lastStep);
+        putDouble(content, HEADER_BYTES + 8, amount);
+        return content;
+    }
+
+    static byte[] header(Opcode op, int length) {
+        byte[] content = new byte[length];
+        content[0] = MAGIC;
+        content[1] = VERSION;
+        content[2] = (byte) op.ordinal();
+        return content;
+    }
+
+    static boolean isFramed(byte[] content, Opcode op) {
+        return content.length >= HEADER_BYTES && content[0] == MAGIC && content[1] == VERSION && content[2] == op.ordinal();
+    }
+
+    static void putInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+
+    static int getInt(byte[] source, int offset) {
+        return ((source[offset] & 0xFF) << 24) | ((source[offset + 1] & 0xFF) << 16)
+                | ((source[offset + 2] & 0xFF) << 8) | (source[offset + 3] & 0xFF);
+    }
+
+    static void putLong(byte[] target, int offset, long value) {
+        putInt(target, offset, (int) (value >>> 32));
+        putInt(target, offset + 4, (int) value);
+    }
+
+    static long getLong(byte[] source, int offset) {
+        return ((long) getInt(source, offset) << 32) | (getInt(source, offset + 4) & 0xFFFFFFFFL);
+    }
+
+    static void putDouble(byte[] target, int offset, double value) {
+        putLong(target, offset, Double.doubleToRawLongBits(value));
+    }
+
+    static double getDouble(byte[] source, int offset) {
+        return Double.longBitsToDouble(getLong(source, offset));
+    }
+
+    // Text fallback, the command strings the agents have always used
+
+    static String toText(Opcode op, int step, int lastStep, double amount) {
+        switch (op) {
+            case GET_LOAD:
+                return "getLoad:" + step;
+            case GET_ENERGY:
+                return "getEnergyAtHour:" + step;
+            case GET_LOAD_RANGE:
+                return "getLoadRange:" + step + ":" + lastStep;
+            case GET_ENERGY_RANGE:
+                return "getEnergyRange:" + step + ":" + lastStep;
+            case GET_SURPLUS:
+                return "getSurplus";
+            case DISCHARGE:
+                return "discharge:" + step + ":" + amount;
+            case CHARGE:
+                return "charge:" + step + ":" + amount;
+            case GET_SOC:
+                return "getSOC";
+            case SUPPLY:
+                return "supply:" + amount;
+            case ABSORB_SURPLUS:
+                return "absorbSurplus:" + amount;
+            case SUBSCRIBE_STATE:
+                return "subscribeState";
+            case SNAPSHOT_STATE:
+                return "snapshot:" + step;
+            default:
+                throw new IllegalArgumentException("No text form for " + op);
+        }
+    }
+
+    private boolean parseText(String content) {
+        if (content == null) {
+            return false;
+        }
+        String[] parts = content.split(":");
+        try {
+            switch (parts[0]) {
+                case "getLoad":
+                    return set(Opcode.GET_LOAD, Integer.parseInt(parts[1]), 0, 0);
+                case "getEnergyAtHour":
+                    return set(Opcode.GET_ENERGY, Integer.parseInt(parts[1]), 0, 0);
+                case "getLoadRange":
+                    return set(Opcode.GET_LOAD_RANGE, Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), 0);
+                case "getEnergyRange":
+                    return set(Opcode.GET_ENERGY_RANGE, Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), 0);
+                case "getSurplus":
+                    return set(Opcode.GET_SURPLUS, 0, 0, 0);
+                case "discharge":
+                    return set(Opcode.DISCHARGE, Integer.parseInt(parts[1]), 0, Double.parseDouble(parts[2]));
+                case "charge":
+                    return set(Opcode.CHARGE, Integer.parseInt(parts[1]), 0, Double.parseDouble(parts[2]));
+                case "getSOC":
+                    return set(Opcode.GET_SOC, 0, 0, 0);
+                case "supply":
+                    return set(Opcode.SUPPLY, 0, 0, Double.parseDouble(parts[1]));
+                case "absorbSurplus":
+                    return set(Opcode.ABSORB_SURPLUS, 0, 0, Double.parseDouble(parts[1]));
+                case "subscribeState":
+                    return set(Opcode.SUBSCRIBE_STATE, 0, 0, 0);
+                case "snapshot":
+                    return set(Opcode.SNAPSHOT_STATE, parts.length > 1 ? Integer.parseInt(parts[1]) : 0, 0, 0);
+                case "agentState":
+                case "restore":
+                    // Parsed whole before anything is kept, so a malformed state leaves no partial vector
+                    double[] values = new double[parts.length - 1];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = Double.parseDouble(parts[1 + i]);
+                    }
+                    vector = values;
+                    opcode = parts[0].equals("restore") ? Opcode.RESTORE_STATE : Opcode.AGENT_STATE;
+                    return true;
+                case "state":
+                    if (parts.length != 2 + state.length) {
+                        return false;
+                    }
+                    long version = Long.parseLong(parts[1]);
+                    double[] fields = new double[state.length];
+                    for (int i = 0; i < fields.length; i++) {
+                        fields[i] = Double.parseDouble(parts[2 + i]);
+                    }
+                    stateVersion = version;
+                    System.arraycopy(fields, 0, state, 0, state.length);
+                    opcode = Opcode.BATTERY_STATE;
+                    return true;
+                default:
+                    return false;
+            }
+        } catch (RuntimeException e) {
+            return false;  // Malformed command
+        }
+    }
+
+    private boolean set(Opcode op, int step, int lastStep, double amount) {
+        this.opcode = op;
+        this.step = step;
+        this.lastStep = lastStep;
+        this.amount = amount;
+        return true;
+    }
+}
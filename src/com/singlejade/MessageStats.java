@@ -0,0 +1,85 @@
+package com.singlejade;
+
+// Request/reply statistics for one message type, as seen by the requesting agent
+public class MessageStats implements MessageStatsMBean {
+    private final String messageType;
+    private final LatencyHistogram roundTrips = new LatencyHistogram();
+    private long timeouts;
+    private long mismatches;
+    private long lateReplies;  // Replies that came after their request had timed out
+
+    public MessageStats(String messageType) {
+        this.messageType = messageType;
+    }
+
+    public void recordRoundTrip(long nanos) {
+        roundTrips.record(nanos);
+    }
+
+    public void recordTimeout() {
+        timeouts++;
+    }
+
+    public void recordMismatch() {
+        mismatches++;
+    }
+
+    public void recordLateReply() {
+        lateReplies++;
+    }
+
+    @Override
+    public String getMessageType() {
+        return messageType;
+    }
+
+    @Override
+    public long getCount() {
+        return roundTrips.getCount();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    @Override
+    public long getMismatches() {
+        return mismatches;
+    }
+
+    @Override
+    public long getLateReplies() {
+        return lateReplies;
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return roundTrips.getMean() / 1e3;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return roundTrips.percentile(0.50) / 1e3;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return roundTrips.percentile(0.99) / 1e3;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return roundTrips.percentile(0.999) / 1e3;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return roundTrips.getMax() / 1e3;
+    }
+
+    public String summary() {
+        return String.format("%-17s count=%d timeouts=%d late=%d mismatches=%d mean=%.1f us p50=%.1f us p99=%.1f us p99.9=%.1f us max=%.1f us",
+                messageType, getCount(), timeouts, lateReplies, mismatches, getMeanMicros(), getP50Micros(), getP99Micros(), getP999Micros(), getMaxMicros());
+    }
+}
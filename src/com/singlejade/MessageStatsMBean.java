@@ -0,0 +1,24 @@
+package com.singlejade;
+
+// JMX view of one message type, latencies in microseconds
+public interface MessageStatsMBean {
+    String getMessageType();
+
+    long getCount();
+
+    long getTimeouts();
+
+    long getMismatches();
+
+    long getLateReplies();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+}
@@ -0,0 +1,85 @@
+package com.singlejade;
+
+import jade.core.Profile;
+import jade.core.ProfileImpl;
+import jade.core.Runtime;
+import jade.wrapper.AgentContainer;
+import jade.wrapper.StaleProxyException;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Properties;
+
+// Peripheral JADE container started by DistributedLauncher in its own JVM. It joins the main
+// container, starts the agents placed on it plus a node aggregator named "<container>-agg" over its
+// Load agents, then prints READY so the launcher knows the node is up.
+//
+// Arguments: container=node-1 host=localhost port=1099 placement=placement.properties, plus any
+// simulation settings to pass on to the agents
+public class PeripheralContainer {
+
+    public static void main(String[] args) throws IOException, StaleProxyException {
+        SimulationConfig config = SimulationConfig.fromArguments(args);
+        Log.configure(config);
+        String name = config.getString("container", "node");
+        Properties placement = new Properties();
+        try (FileReader reader = new FileReader(config.getString("placement", "src/com/singlejade/placement.properties"))) {
+            placement.load(reader);
+        }
+
+        Runtime runtime = Runtime.instance();
+        runtime.setCloseVM(true);  // Exit this JVM when the platform shuts the container down
+        Profile profile = new ProfileImpl(false);
+        profile.setParameter(Profile.MAIN_HOST, config.getString("host", "localhost"));
+        profile.setParameter(Profile.MAIN_PORT, config.getString("port", "1099"));
+        profile.setParameter(Profile.CONTAINER_NAME, name);
+        AgentContainer container = runtime.createAgentContainer(profile);
+
+        for (String[] agent : placedAgents(placement, name)) {
+            container.createNewAgent(agent[0], agent[1], agentArguments(agent[1], config)).start();
+        }
+
+        int loads = Integer.parseInt(placement.getProperty(name + ".loads", "0"));
+        if (loads > 0) {
+            int totalLoads = totalLoads(placement);
+            AggregationTree.build(container, name + "-", name + "-agg", "node", loads, totalLoads,
+                    Integer.parseInt(placement.getProperty("fanIn", "16")), config);
+        }
+
+        java.lang.Runtime.getRuntime().addShutdownHook(new Thread(() -> Log.summary(name + " " + Aggregator.levelSummary())));
+        Log.flush();
+        System.out.println("READY " + name);  // Read by DistributedLauncher, whatever the log level
+    }
+
+    // "Name:class" pairs listed under <container>.agents
+    static String[][] placedAgents(Properties placement, String container) {
+        String list = placement.getProperty(container + ".agents", "").trim();
+        if (list.isEmpty()) {
+            return new String[0][];
+        }
+        String[] entries = list.split(",");
+        String[][] agents = new String[entries.length][];
+        for (int i = 0; i < entries.length; i++) {
+            agents[i] = entries[i].trim().split(":", 2);
+        }
+        return agents;
+    }
+
+    // Arguments for a placed agent; the BatteryAgent takes its capacity and SOC first, as Main starts it
+    static Object[] agentArguments(String className, SimulationConfig config) {
+        if (className.equals("com.singlejade.Battery")) {
+            return Main.batteryArguments(config, config.getDouble("capacity", 1000.0), config.getDouble("soc", 50.0) / 100.0);
+        }
+        return config.toArguments();
+    }
+
+    static int totalLoads(Properties placement) {
+        int total = Integer.parseInt(placement.getProperty("main.loads", "0"));
+        for (String container : placement.getProperty("containers", "").split(",")) {
+            if (!container.isBlank()) {
+                total += Integer.parseInt(placement.getProperty(container.trim() + ".loads", "0"));
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,45 @@
+package com.singlejade;
+
+import java.nio.ByteBuffer;
+import java.util.function.IntToDoubleFunction;
+
+// Compact binary block used to ship a whole range of per-step values in one ACL message:
+// the MessageCodec header with opcode RANGE_VALUES, then [int firstStep][int count][count x double], big-endian
+public final class ProfileBlock {
+    private static final int HEADER_BYTES = MessageCodec.HEADER_BYTES + 8;
+
+    private ProfileBlock() {
+    }
+
+    public static byte[] encode(int firstStep, int count, IntToDoubleFunction valueAtStep) {
+        ByteBuffer buffer = ByteBuffer.wrap(MessageCodec.header(MessageCodec.Opcode.RANGE_VALUES, HEADER_BYTES + count * Double.BYTES));
+        buffer.position(MessageCodec.HEADER_BYTES);
+        buffer.putInt(firstStep);
+        buffer.putInt(count);
+        for (int i = 0; i < count; i++) {
+            buffer.putDouble(valueAtStep.applyAsDouble(firstStep + i));
+        }
+        return buffer.array();
+    }
+
+    public static boolean isBlock(byte[] content) {
+        return content.length >= HEADER_BYTES && MessageCodec.isFramed(content, MessageCodec.Opcode.RANGE_VALUES);
+    }
+
+    public static int firstStep(byte[] block) {
+        return MessageCodec.getInt(block, MessageCodec.HEADER_BYTES);
+    }
+
+    public static int count(byte[] block) {
+        return MessageCodec.getInt(block, MessageCodec.HEADER_BYTES + 4);
+    }
+
+    // Copies the block's values into target starting at offset and returns how many were copied
+    public static int decode(byte[] block, double[] target, int offset) {
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        int count = Math.min(count(block), target.length - offset);
+        buffer.position(HEADER_BYTES);
+        buffer.asDoubleBuffer().get(target, offset, count);
+        return count;
+    }
+}
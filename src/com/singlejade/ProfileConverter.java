@@ -0,0 +1,95 @@
+package com.singlejade;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Converts a CSV profile such as energy_data.csv into the columnar ProfileStore format.
+// Usage: ProfileConverter <input.csv> <output.bin>
+public class ProfileConverter {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: ProfileConverter <input.csv> <output.bin>");
+            return;
+        }
+        long start = System.nanoTime();
+        long rows = convert(args[0], args[1]);
+        System.out.printf("Converted %d rows from %s to %s in %.1f ms%n", rows, args[0], args[1], (System.nanoTime() - start) / 1e6);
+    }
+
+    public static long convert(String csvFile, String binFile) throws IOException {
+        // First pass: header and row count, so every column can be laid out in place
+        String[] header;
+        long rows = 0;
+        try (CSVReader reader = new CSVReader(new FileReader(csvFile))) {
+            header = reader.readNext();
+            if (header == null) {
+                throw new IOException("Empty profile: " + csvFile);
+            }
+            while (reader.readNext() != null) {
+                rows++;
+            }
+        } catch (CsvValidationException e) {
+            throw new IOException(e);
+        }
+
+        byte[][] names = new byte[header.length][];
+        long position = 20;
+        for (int c = 0; c < header.length; c++) {
+            names[c] = header[c].trim().getBytes(StandardCharsets.UTF_8);
+            position += 2 + names[c].length;
+        }
+        long dataStart = ProfileStore.align(position);
+        long columnBytes = rows * Double.BYTES;
+
+        try (FileChannel channel = FileChannel.open(Paths.get(binFile), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer head = ByteBuffer.allocate((int) dataStart).order(ByteOrder.LITTLE_ENDIAN);
+            head.putInt(ProfileStore.MAGIC).putInt(ProfileStore.VERSION).putLong(rows).putInt(header.length);
+            for (byte[] name : names) {
+                head.putShort((short) name.length).put(name);
+            }
+            head.position(0);
+            while (head.hasRemaining()) {
+                channel.write(head, head.position());
+            }
+
+            MappedByteBuffer[] mapped = new MappedByteBuffer[header.length];
+            DoubleBuffer[] columns = new DoubleBuffer[header.length];
+            for (int c = 0; c < header.length; c++) {
+                mapped[c] = channel.map(FileChannel.MapMode.READ_WRITE, dataStart + c * columnBytes, columnBytes);
+                columns[c] = mapped[c].order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            }
+
+            // Second pass: write each value straight into its column
+            try (CSVReader reader = new CSVReader(new FileReader(csvFile))) {
+                reader.readNext();  // Skip header row
+                String[] line;
+                int row = 0;
+                while ((line = reader.readNext()) != null && row < rows) {
+                    for (int c = 0; c < columns.length; c++) {
+                        columns[c].put(row, c < line.length ? Double.parseDouble(line[c].trim()) : 0);
+                    }
+                    row++;
+                }
+            } catch (CsvValidationException e) {
+                throw new IOException(e);
+            }
+            for (MappedByteBuffer column : mapped) {
+                column.force();
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,132 @@
+package com.singlejade;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Read-only columnar profile file mapped into memory. Layout (little-endian):
+//   int magic, int version, long rows, int columns,
+//   per column: short nameLength, UTF-8 name,
+//   zero padding to an 8-byte boundary, then each column as rows x double, one after the other.
+// Values are read straight from the mapping, so opening is instant whatever the file size
+// and every agent in the JVM shares the same pages through the page cache.
+public class ProfileStore {
+    public static final int MAGIC = 0x50474153;  // "SAGP"
+    public static final int VERSION = 1;
+
+    private static final Map<Path, ProfileStore> OPEN_STORES = new ConcurrentHashMap<>();
+
+    private final Path path;
+    private final int rows;
+    private final Map<String, DoubleBuffer> columns = new LinkedHashMap<>();
+
+    private ProfileStore(Path path) throws IOException {
+        this.path = path;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(20).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a profile store: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported profile store version " + version + " in " + path);
+            }
+            long rowCount = header.getLong();
+            if (rowCount > Integer.MAX_VALUE / Double.BYTES) {
+                throw new IOException("Too many rows for one mapped column: " + rowCount);
+            }
+            this.rows = (int) rowCount;
+            int columnCount = header.getInt();
+
+            // Column names
+            long position = 20;
+            String[] names = new String[columnCount];
+            for (int c = 0; c < columnCount; c++) {
+                ByteBuffer length = ByteBuffer.allocate(2).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(channel, length, position);
+                int nameLength = length.flip().getShort();
+                ByteBuffer name = ByteBuffer.allocate(nameLength);
+                readFully(channel, name, position + 2);
+                names[c] = new String(name.array(), StandardCharsets.UTF_8);
+                position += 2 + nameLength;
+            }
+
+            // Column data, one mapping per column (a mapping survives closing the channel)
+            long dataStart = align(position);
+            long columnBytes = (long) rows * Double.BYTES;
+            for (int c = 0; c < columnCount; c++) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, dataStart + c * columnBytes, columnBytes);
+                columns.put(names[c], mapped.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer());
+            }
+        }
+    }
+
+    // Maps the file without sharing the mapping through open()
+    public static ProfileStore read(String fileName) throws IOException {
+        return new ProfileStore(Paths.get(fileName).toAbsolutePath().normalize());
+    }
+
+    // Opens a store once per JVM; later calls for the same file share the mapping
+    public static ProfileStore open(String fileName) throws IOException {
+        Path path = Paths.get(fileName).toAbsolutePath().normalize();
+        try {
+            return OPEN_STORES.computeIfAbsent(path, p -> {
+                try {
+                    return new ProfileStore(p);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } catch (IllegalStateException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public boolean hasColumn(String name) {
+        return columns.containsKey(name);
+    }
+
+    // Independent read-only view on one column; absolute get(index) reads need no parsing or copying
+    public DoubleBuffer column(String name) {
+        DoubleBuffer column = columns.get(name);
+        if (column == null) {
+            throw new IllegalArgumentException("No column '" + name + "' in " + path + ", available: " + columns.keySet());
+        }
+        return column.asReadOnlyBuffer();
+    }
+
+    static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of profile store");
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.singlejade;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+// Output format for the per-hour result rows written by ResultSink
+public interface ResultFormat extends Closeable {
+
+    void writeHeader(String[] columns) throws IOException;
+
+    void writeRow(double[] row) throws IOException;
+
+    void flush() throws IOException;
+
+    // Bytes in the file so far, counting only what has been flushed
+    long position() throws IOException;
+
+    static ResultFormat create(String format, String fileName) throws IOException {
+        return create(format, fileName, -1);
+    }
+
+    static ResultFormat create(String format, String fileName, long resumeOffset) throws IOException {
+        return create(format, fileName, resumeOffset, RunLogFormat.DEFAULT_SEGMENT_ROWS);
+    }
+
+    // With resumeOffset >= 0 the file is cut back to that many bytes and rows are appended from there;
+    // segmentRows only applies to a new run log
+    static ResultFormat create(String format, String fileName, long resumeOffset, int segmentRows) throws IOException {
+        switch (format.toLowerCase()) {
+            case "csv":
+                return new CsvResultFormat(open(fileName, resumeOffset));
+            case "binary":
+                return new BinaryResultFormat(open(fileName, resumeOffset));
+            case "runlog":
+                return RunLogFormat.open(fileName, segmentRows, resumeOffset);
+            default:
+                throw new IllegalArgumentException("Unknown result format: " + format);
+        }
+    }
+
+    private static FileOutputStream open(String fileName, long resumeOffset) throws IOException {
+        if (resumeOffset < 0) {
+            return new FileOutputStream(fileName);
+        }
+        FileOutputStream out = new FileOutputStream(fileName, true);
+        if (out.getChannel().size() < resumeOffset) {
+            out.close();
+            throw new IOException(fileName + " is shorter than the checkpoint offset " + resumeOffset);
+        }
+        out.getChannel().truncate(resumeOffset);
+        return out;
+    }
+}
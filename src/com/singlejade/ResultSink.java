@@ -0,0 +1,168 @@
+package com.singlejade;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+// Result writer that stays open for the whole run. Rows go through a bounded queue to a background
+// thread, which writes them in batches and flushes after flushRows rows or flushMillis, whichever
+// comes first. Row arrays are recycled, so logging an hour allocates nothing on the agent thread.
+// A mark() queued between rows reports where the file stands once every earlier row is on disk,
+// which is what a checkpoint records to resume the file from.
+public class ResultSink implements AutoCloseable {
+    private static final double[] MARK = new double[0];  // Queued in place of a row by mark()
+    private final ResultFormat format;
+    private final int columns;
+    private final int flushRows;
+    private final long flushMillis;
+    private final BlockingQueue<double[]> pending;
+    private final BlockingQueue<double[]> freeRows;
+    private final Queue<CompletableFuture<long[]>> marks = new ConcurrentLinkedQueue<>();
+    private final Thread writerThread;
+    private volatile boolean closing;
+    private volatile IOException failure;
+    private volatile long rowsWritten;
+
+    public ResultSink(ResultFormat format, String[] header, int queueCapacity, int flushRows, long flushMillis) throws IOException {
+        this(format, header, -1, queueCapacity, flushRows, flushMillis);
+    }
+
+    // resumedRows >= 0 continues a file that already holds that many rows after its header
+    public ResultSink(ResultFormat format, String[] header, long resumedRows, int queueCapacity, int flushRows, long flushMillis) throws IOException {
+        this.format = format;
+        this.columns = header.length;
+        this.flushRows = Math.max(1, flushRows);
+        this.flushMillis = flushMillis;
+        this.pending = new ArrayBlockingQueue<>(queueCapacity);
+        this.freeRows = new ArrayBlockingQueue<>(queueCapacity);
+        if (resumedRows < 0) {
+            format.writeHeader(header);
+            format.flush();
+        } else {
+            rowsWritten = resumedRows;
+        }
+
+        writerThread = new Thread(this::writeLoop, "result-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    public static ResultSink fromConfig(SimulationConfig config, String[] header) throws IOException {
+        return fromConfig(config, header, -1, -1);
+    }
+
+    // Continues the configured output from a checkpoint: the file is cut back to resumeOffset bytes
+    public static ResultSink fromConfig(SimulationConfig config, String[] header, long resumeOffset, long resumedRows) throws IOException {
+        ResultFormat format = ResultFormat.create(config.getString("format", "csv"), config.getString("output", "energy_log.csv"), resumeOffset,
+                config.getInt("segmentRows", RunLogFormat.DEFAULT_SEGMENT_ROWS));
+        return new ResultSink(format, header, resumeOffset < 0 ? -1 : resumedRows,
+                config.getInt("queueRows", 4096), config.getInt("flushRows", 1024), config.getLong("flushMillis", 1000));
+    }
+
+    // Copies the row and queues it; blocks only when the writer falls a full queue behind
+    public void write(double[] row) {
+        if (failure != null) {
+            throw new IllegalStateException("Result writer failed", failure);
+        }
+        if (closing) {
+            throw new IllegalStateException("Result sink is closed");
+        }
+        double[] copy = freeRows.poll();
+        if (copy == null) {
+            copy = new double[columns];
+        }
+        System.arraycopy(row, 0, copy, 0, columns);
+        try {
+            pending.put(copy);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    // Completes with {rows, bytes} of the file once every row written before this call is flushed
+    public CompletableFuture<long[]> mark() {
+        CompletableFuture<long[]> mark = new CompletableFuture<>();
+        if (failure != null || closing) {
+            mark.completeExceptionally(new IllegalStateException("Result sink is closed or failed", failure));
+            return mark;
+        }
+        marks.add(mark);
+        try {
+            pending.put(MARK);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return mark;
+    }
+
+    private void writeLoop() {
+        List<double[]> batch = new ArrayList<>(flushRows);
+        int unflushed = 0;
+        long lastFlush = System.currentTimeMillis();
+        try {
+            while (!closing || !pending.isEmpty()) {
+                double[] first = pending.poll(Math.max(1, flushMillis), TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    pending.drainTo(batch, flushRows - 1);
+                    long rows = rowsWritten;
+                    for (double[] row : batch) {
+                        if (row == MARK) {
+                            format.flush();
+                            unflushed = 0;
+                            marks.poll().complete(new long[] {rows, format.position()});
+                            continue;
+                        }
+                        format.writeRow(row);
+                        freeRows.offer(row);
+                        rows++;
+                        unflushed++;
+                    }
+                    rowsWritten = rows;
+                    batch.clear();
+                }
+                long now = System.currentTimeMillis();
+                if (unflushed > 0 && (unflushed >= flushRows || now - lastFlush >= flushMillis)) {
+                    format.flush();
+                    unflushed = 0;
+                    lastFlush = now;
+                }
+            }
+            format.flush();
+        } catch (IOException e) {
+            failure = e;
+            Log.error("Result log writer stopped", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        CompletableFuture<long[]> mark;
+        while ((mark = marks.poll()) != null) {
+            mark.completeExceptionally(new IllegalStateException("Result writer stopped", failure));
+        }
+    }
+
+    // Drains the queue, flushes and closes the underlying file
+    @Override
+    public void close() throws IOException {
+        closing = true;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        format.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
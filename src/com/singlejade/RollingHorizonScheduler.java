@@ -0,0 +1,190 @@
+package com.singlejade;
+
+import java.util.stream.IntStream;
+
+// Plans the battery by dynamic programming over a discretised SOC grid instead of the greedy rule.
+// Each step the next `horizon` steps of forecast are solved backwards, cheapest future cost per
+// charge level, and only the first decision is used; the next step is solved again with the window
+// moved on (rolling horizon). Like the greedy path the battery only charges from surplus and only
+// discharges into a deficit, so the plan decides how much to hold back for more expensive steps.
+//
+// Value tables and forecast arrays are allocated once for the largest horizon and reused by every
+// solve. A level only moves to levels it can reach within the step's deficit or surplus, and each
+// stage costs O(states); large grids solve a stage in parallel blocks. Energy left at the end of the window
+// is valued at the tariff's mean import price, so the plan does not empty the battery for nothing.
+//
+// Settings: "scheduler=dp horizonHours=48 socStates=1000", the horizon in hours like the other
+// settings and planned as that many hours of simulation steps
+public class RollingHorizonScheduler {
+    private static final int PARALLEL_THRESHOLD = 8192;  // Smaller grids solve a stage faster on the calling thread
+
+    private final int horizon;
+    private final int states;
+    private final Tariff tariff;
+    private final double[][] value;  // [step in window][charge level], cheapest cost from there to the window's end
+    private final double[] net;      // Net demand per step in the window, > 0 deficit, < 0 surplus
+    private final double[] price;    // Import price per step in the window
+    private final double[] moved;    // Scratch for one stage, see solveStage
+    private final double[] prefixMin;
+    private final double[] suffixMin;
+    private long solves;
+    private long totalNanos;
+    private long maxNanos;
+
+    public RollingHorizonScheduler(int horizon, int states, Tariff tariff) {
+        if (horizon < 1 || states < 2) {
+            throw new IllegalArgumentException("Invalid scheduler size: horizon " + horizon + ", " + states + " SOC states");
+        }
+        this.horizon = horizon;
+        this.states = states;
+        this.tariff = tariff;
+        this.value = new double[horizon + 1][states];
+        this.net = new double[horizon];
+        this.price = new double[horizon];
+        this.moved = new double[states];
+        this.prefixMin = new double[states];
+        this.suffixMin = new double[states];
+    }
+
+    public static RollingHorizonScheduler fromConfig(SimulationConfig config, StepLength stepLength, Tariff tariff) {
+        return new RollingHorizonScheduler(stepLength.steps(config.getInt("horizonHours", 48)), config.getInt("socStates", 1000), tariff);
+    }
+
+    public int getHorizon() {
+        return horizon;
+    }
+
+    // Plans the first step of the forecast window starting at offset (step number firstStep) and returns
+    // the battery energy for it: > 0 charge, < 0 discharge, kWh. Uses at most `horizon` forecast steps.
+    public double plan(double[] load, double[] solar, double[] wind, int offset, int count, int firstStep,
+                       BatteryState battery, double minSOC, double maxSOC) {
+        long startNanos = System.nanoTime();
+        int steps = Math.min(count, horizon);
+        for (int t = 0; t < steps; t++) {
+            net[t] = DispatchKernel.netDemand(load[offset + t], solar[offset + t], wind[offset + t]);
+            price[t] = tariff.importPrice(firstStep + t);
+        }
+
+        double minCharge = battery.capacity * minSOC / 100.0;
+        double step = battery.capacity * (maxSOC - minSOC) / 100.0 / (states - 1);
+        if (step <= 0) {
+            return 0;  // No usable range
+        }
+
+        // Stored energy left at the end of the window is worth what it would save on imports
+        double storedValue = tariff.meanImportPrice();
+        double[] terminal = value[steps];
+        for (int s = 0; s < states; s++) {
+            terminal[s] = -s * step * storedValue;
+        }
+
+        // Backward induction over the window; stage 0 only matters for the current charge level
+        for (int t = steps - 1; t >= 1; t--) {
+            solveStage(t, step);
+        }
+        int current = (int) Math.round((battery.charge - minCharge) / step);
+        current = Math.max(0, Math.min(states - 1, current));
+        int best = bestNext(0, current, step);
+
+        record(System.nanoTime() - startNanos);
+        return (best - current) * step;
+    }
+
+    // Within the levels reachable from s the step is all import or all export, so its cost is linear in
+    // the next level and the stage is a sliding-window minimum of moved[n] = rate * n * step + value[t + 1][n]
+    // over [s - down, s + up]. Minimums come from per-block prefix and suffix minimums (van Herk/Gil-Werman),
+    // O(states) per stage with blocks solved in parallel.
+    private void solveStage(int t, double step) {
+        int down = net[t] > 0 ? (int) Math.min(states - 1, net[t] / step) : 0;   // Discharge at most the deficit
+        int up = net[t] < 0 ? (int) Math.min(states - 1, -net[t] / step) : 0;    // Charge at most the surplus
+        double rate = net[t] > 0 ? price[t] : tariff.exportPrice();
+        int width = down + up + 1;
+        int blocks = (states + width - 1) / width;
+        double[] next = value[t + 1];
+        double[] stage = value[t];
+
+        if (states < PARALLEL_THRESHOLD) {
+            for (int block = 0; block < blocks; block++) {
+                blockMinimums(block, width, rate, step, next);
+            }
+            for (int s = 0; s < states; s++) {
+                stage[s] = stageValue(t, s, down, up, width, rate, step);
+            }
+        } else {
+            IntStream.range(0, blocks).parallel().forEach(block -> blockMinimums(block, width, rate, step, next));
+            IntStream.range(0, states).parallel().forEach(s -> stage[s] = stageValue(t, s, down, up, width, rate, step));
+        }
+    }
+
+    private void blockMinimums(int block, int width, double rate, double step, double[] next) {
+        int start = block * width;
+        int end = Math.min(states, start + width);
+        double min = Double.POSITIVE_INFINITY;
+        for (int n = start; n < end; n++) {
+            moved[n] = rate * n * step + next[n];
+            min = Math.min(min, moved[n]);
+            prefixMin[n] = min;
+        }
+        min = Double.POSITIVE_INFINITY;
+        for (int n = end - 1; n >= start; n--) {
+            min = Math.min(min, moved[n]);
+            suffixMin[n] = min;
+        }
+    }
+
+    // A full window [from, to] spans at most two blocks: the suffix of from's block and the prefix of to's.
+    // A window cut short by the bottom of the grid starts at block 0's first level, so the prefix alone is
+    // exact; one cut short by the top can end inside from's own block, where to's prefix would reach below
+    // from, but that block is the last one, so the suffix from `from` alone is exact.
+    private double stageValue(int t, int s, int down, int up, int width, double rate, double step) {
+        int from = s - down;
+        int to = Math.min(states - 1, s + up);
+        double windowMin;
+        if (from <= 0) {
+            windowMin = prefixMin[to];
+        } else if (from / width == to / width) {
+            windowMin = suffixMin[from];
+        } else {
+            windowMin = Math.min(suffixMin[from], prefixMin[to]);
+        }
+        return rate * (net[t] - s * step) + windowMin;
+    }
+
+    // Cheapest charge level to move to from level s during step t of the window
+    private int bestNext(int t, int s, double step) {
+        int from = s, to = s;
+        if (net[t] > 0) {
+            from = Math.max(0, s - (int) (net[t] / step));   // Discharge at most the deficit
+        } else if (net[t] < 0) {
+            to = Math.min(states - 1, s + (int) (-net[t] / step));  // Charge at most the surplus
+        }
+        int best = s;
+        double bestCost = Double.POSITIVE_INFINITY;
+        for (int next = from; next <= to; next++) {
+            double c = cost(t, s, next, step);
+            if (c < bestCost) {
+                bestCost = c;
+                best = next;
+            }
+        }
+        return best;
+    }
+
+    // This step's grid cost for moving from level s to next, plus the cheapest cost from next onwards
+    private double cost(int t, int s, int next, double step) {
+        double grid = net[t] + (next - s) * step;  // > 0 import, < 0 export
+        double stepCost = grid > 0 ? grid * price[t] : grid * tariff.exportPrice();
+        return stepCost + value[t + 1][next];
+    }
+
+    private void record(long nanos) {
+        solves++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    public String summary() {
+        return String.format("DP scheduler: horizon %d steps, %d SOC states, %d solves, mean %.3f ms, max %.3f ms",
+                horizon, states, solves, solves > 0 ? totalNanos / 1e6 / solves : 0, maxNanos / 1e6);
+    }
+}
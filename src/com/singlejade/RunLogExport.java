@@ -0,0 +1,35 @@
+package com.singlejade;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+// Writes a run log, or the rows of one key range of it, back out as CSV in the layout of energy_log.csv.
+// Usage: RunLogExport <run.log> <output.csv> [from] [to]
+public class RunLogExport {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: RunLogExport <run.log> <output.csv> [from] [to]");
+            return;
+        }
+        long start = System.nanoTime();
+        double from = args.length > 2 ? Double.parseDouble(args[2]) : Double.NEGATIVE_INFINITY;
+        double to = args.length > 3 ? Double.parseDouble(args[3]) : Double.POSITIVE_INFINITY;
+        long rows = export(args[0], args[1], from, to);
+        System.out.printf("Exported %d rows from %s to %s in %.1f ms%n", rows, args[0], args[1], (System.nanoTime() - start) / 1e6);
+    }
+
+    // Rows with keys in [from, to); returns how many were written
+    public static long export(String runLog, String csvFile, double from, double to) throws IOException {
+        long[] rows = new long[1];
+        try (RunLogReader reader = new RunLogReader(Paths.get(runLog));
+             CsvResultFormat csv = new CsvResultFormat(csvFile)) {
+            csv.writeHeader(reader.getColumns());
+            reader.scan(from, to, row -> {
+                csv.writeRow(row);
+                rows[0]++;
+            });
+        }
+        return rows[0];
+    }
+}
@@ -0,0 +1,253 @@
+package com.singlejade;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Segmented, append-only binary run log for long runs, "format=runlog segmentRows=4096". Rows are
+// fixed-width, columns x double (big-endian), grouped in segments of segmentRows rows, and every full
+// segment is followed by its summary: [double first key][double last key][columns x min][columns x max]
+// [columns x sum], where the key is the first column (the step). Segments all have the same length, so
+// segment k starts at a computable offset and the summaries form a sparse time index; RunLogReader
+// answers range queries from them and reads only the segments at the edges of a range. The last,
+// partial segment has no summary yet; readers scan its rows instead.
+//
+// Header: [int magic][int version][int columns][int segmentRows][columns x UTF name]
+public class RunLogFormat implements ResultFormat {
+    public static final int MAGIC = 0x5341474C;  // "SAGL"
+    public static final int VERSION = 1;
+    public static final int DEFAULT_SEGMENT_ROWS = 4096;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    private final int segmentRows;
+    private int columns;
+    private int rowsInSegment;
+    private double firstKey;
+    private double lastKey;
+    private double[] min;
+    private double[] max;
+    private double[] sum;
+
+    private RunLogFormat(FileChannel channel, int segmentRows) {
+        if (segmentRows <= 0) {
+            throw new IllegalArgumentException("Segment rows must be positive: " + segmentRows);
+        }
+        this.channel = channel;
+        this.segmentRows = segmentRows;
+    }
+
+    public RunLogFormat(String fileName, int segmentRows) throws IOException {
+        this(FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING), segmentRows);
+    }
+
+    // With resumeOffset >= 0 the log is cut back to that many bytes and continues from there, with
+    // the segment length it was written with; the rows of the partial segment are read back for its summary
+    static RunLogFormat open(String fileName, int segmentRows, long resumeOffset) throws IOException {
+        if (resumeOffset < 0) {
+            return new RunLogFormat(fileName, segmentRows);
+        }
+        FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < resumeOffset) {
+                throw new IOException(fileName + " is shorter than the checkpoint offset " + resumeOffset);
+            }
+            channel.truncate(resumeOffset);
+            Header header = Header.read(channel);
+            RunLogFormat format = new RunLogFormat(channel, header.segmentRows);
+            format.start(header.columns.length);
+            long tail = (resumeOffset - header.bytes) % header.segmentBytes();
+            if (resumeOffset < header.bytes || tail % header.rowBytes() != 0 || tail / header.rowBytes() >= header.segmentRows) {
+                throw new IOException(fileName + " does not end on a row at offset " + resumeOffset);
+            }
+            if (tail > 0) {
+                ByteBuffer rows = ByteBuffer.allocate((int) tail);
+                readFully(channel, rows, resumeOffset - tail);
+                DoubleBuffer values = rows.flip().asDoubleBuffer();
+                double[] row = new double[header.columns.length];
+                while (values.hasRemaining()) {
+                    values.get(row);
+                    format.summarize(row);
+                }
+            }
+            channel.position(resumeOffset);
+            return format;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void start(int columns) {
+        this.columns = columns;
+        this.min = new double[columns];
+        this.max = new double[columns];
+        this.sum = new double[columns];
+    }
+
+    @Override
+    public void writeHeader(String[] names) throws IOException {
+        start(names.length);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(columns);
+            out.writeInt(segmentRows);
+            for (String name : names) {
+                out.writeUTF(name);
+            }
+        }
+        put(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+    @Override
+    public void writeRow(double[] row) throws IOException {
+        if (columns == 0) {
+            throw new IllegalStateException("Run log has no header");
+        }
+        if (buffer.remaining() < columns * 8) {
+            flush();
+        }
+        for (int i = 0; i < columns; i++) {
+            buffer.putDouble(row[i]);
+        }
+        summarize(row);
+        if (rowsInSegment == segmentRows) {
+            writeSummary();
+        }
+    }
+
+    private void summarize(double[] row) {
+        if (rowsInSegment == 0) {
+            firstKey = row[0];
+            for (int i = 0; i < columns; i++) {
+                min[i] = max[i] = sum[i] = row[i];
+            }
+        } else {
+            for (int i = 0; i < columns; i++) {
+                double value = row[i];
+                if (value < min[i]) {
+                    min[i] = value;
+                }
+                if (value > max[i]) {
+                    max[i] = value;
+                }
+                sum[i] += value;
+            }
+        }
+        lastKey = row[0];
+        rowsInSegment++;
+    }
+
+    private void writeSummary() throws IOException {
+        if (buffer.remaining() < (2 + 3 * columns) * 8) {
+            flush();
+        }
+        buffer.putDouble(firstKey);
+        buffer.putDouble(lastKey);
+        for (double value : min) {
+            buffer.putDouble(value);
+        }
+        for (double value : max) {
+            buffer.putDouble(value);
+        }
+        for (double value : sum) {
+            buffer.putDouble(value);
+        }
+        rowsInSegment = 0;
+    }
+
+    private void put(ByteBuffer bytes) throws IOException {
+        flush();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public long position() throws IOException {
+        return channel.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    static void readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        while (target.hasRemaining()) {
+            int read = channel.read(target, position);
+            if (read < 0) {
+                throw new IOException("Run log ends early");
+            }
+            position += read;
+        }
+    }
+
+    // Layout of a run log, read from its header
+    static class Header {
+        final String[] columns;
+        final int segmentRows;
+        final int bytes;  // Length of the header itself
+
+        private Header(String[] columns, int segmentRows, int bytes) {
+            this.columns = columns;
+            this.segmentRows = segmentRows;
+            this.bytes = bytes;
+        }
+
+        static Header read(FileChannel channel) throws IOException {
+            // The header is the column names and a few ints, well within the first 64 KB
+            ByteBuffer start = ByteBuffer.allocate((int) Math.min(channel.size(), 64 * 1024));
+            readFully(channel, start, 0);
+            ByteArrayInputStream bytes = new ByteArrayInputStream(start.array());
+            DataInputStream in = new DataInputStream(bytes);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a version " + VERSION + " run log");
+            }
+            String[] columns = new String[in.readInt()];
+            int segmentRows = in.readInt();
+            if (columns.length <= 0 || segmentRows <= 0) {
+                throw new IOException("Corrupt run log header");
+            }
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = in.readUTF();
+            }
+            return new Header(columns, segmentRows, start.capacity() - bytes.available());
+        }
+
+        int rowBytes() {
+            return columns.length * 8;
+        }
+
+        int summaryBytes() {
+            return (2 + 3 * columns.length) * 8;
+        }
+
+        long segmentBytes() {
+            return (long) segmentRows * rowBytes() + summaryBytes();
+        }
+    }
+}
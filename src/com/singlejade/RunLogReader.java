@@ -0,0 +1,280 @@
+package com.singlejade;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// Range queries over a run log written by RunLogFormat. Opening it reads the segment summaries into
+// memory, the sparse index; the rows of the last, partial segment are read and summarised once.
+// Ranges are half-open [from, to) in values of the key column (the hour, or the minute for shorter
+// steps). Statistics of a range come from the summaries of the segments it covers completely, so
+// only the one or two segments at its edges are read, e.g. the grid import of March is at most two
+// segment reads whatever the length of the run. A row cut short by a crash at the end is ignored.
+//
+// Usage: RunLogReader <run.log> <column> <from> <to> [buckets]
+public class RunLogReader implements Closeable {
+    private final FileChannel channel;
+    private final RunLogFormat.Header header;
+    private final long rows;
+    private final int segments;
+    private final int lastSegmentRows;
+    private final double[] firstKeys;
+    private final double[] lastKeys;
+    private final double[][] min;  // [segment][column]
+    private final double[][] max;
+    private final double[][] sum;
+    private final ByteBuffer segmentBuffer;
+    private int bufferedSegment = -1;
+    private long segmentsRead;
+
+    public RunLogReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            header = RunLogFormat.Header.read(channel);
+            long data = channel.size() - header.bytes;
+            int fullSegments = (int) (data / header.segmentBytes());
+            int tailRows = (int) Math.min(header.segmentRows, data % header.segmentBytes() / header.rowBytes());
+            segments = fullSegments + (tailRows > 0 ? 1 : 0);
+            lastSegmentRows = tailRows > 0 ? tailRows : header.segmentRows;
+            rows = (long) fullSegments * header.segmentRows + tailRows;
+            segmentBuffer = ByteBuffer.allocate(header.segmentRows * header.rowBytes());
+
+            int columns = header.columns.length;
+            firstKeys = new double[segments];
+            lastKeys = new double[segments];
+            min = new double[segments][columns];
+            max = new double[segments][columns];
+            sum = new double[segments][columns];
+            ByteBuffer summary = ByteBuffer.allocate(header.summaryBytes());
+            for (int segment = 0; segment < fullSegments; segment++) {
+                summary.clear();
+                RunLogFormat.readFully(channel, summary, segmentStart(segment) + (long) header.segmentRows * header.rowBytes());
+                DoubleBuffer values = summary.flip().asDoubleBuffer();
+                firstKeys[segment] = values.get();
+                lastKeys[segment] = values.get();
+                values.get(min[segment]).get(max[segment]).get(sum[segment]);
+            }
+            if (tailRows > 0) {
+                summarizeLastSegment();
+                segmentsRead = 0;
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void summarizeLastSegment() throws IOException {
+        int segment = segments - 1;
+        DoubleBuffer values = readSegment(segment);
+        int columns = header.columns.length;
+        for (int row = 0; row < lastSegmentRows; row++) {
+            for (int column = 0; column < columns; column++) {
+                double value = values.get();
+                if (row == 0) {
+                    min[segment][column] = max[segment][column] = sum[segment][column] = value;
+                } else {
+                    min[segment][column] = Math.min(min[segment][column], value);
+                    max[segment][column] = Math.max(max[segment][column], value);
+                    sum[segment][column] += value;
+                }
+                if (column == 0) {
+                    if (row == 0) {
+                        firstKeys[segment] = value;
+                    }
+                    lastKeys[segment] = value;
+                }
+            }
+        }
+    }
+
+    public String[] getColumns() {
+        return header.columns.clone();
+    }
+
+    public int column(String name) {
+        for (int i = 0; i < header.columns.length; i++) {
+            if (header.columns[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No column " + name + " in " + Arrays.toString(header.columns));
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public int getSegments() {
+        return segments;
+    }
+
+    // Segments whose rows were read so far, not counting the summaries read on opening
+    public long getSegmentsRead() {
+        return segmentsRead;
+    }
+
+    // Key of the first and the last row, NaN for an empty log
+    public double firstKey() {
+        return segments > 0 ? firstKeys[0] : Double.NaN;
+    }
+
+    public double lastKey() {
+        return segments > 0 ? lastKeys[segments - 1] : Double.NaN;
+    }
+
+    // Calls the visitor with every row whose key is in [from, to); the array is reused between calls
+    public void scan(double from, double to, Consumer<double[]> visitor) throws IOException {
+        double[] row = new double[header.columns.length];
+        for (int segment = firstSegment(from); segment < segments && firstKeys[segment] < to; segment++) {
+            DoubleBuffer values = readSegment(segment);
+            for (int i = 0, count = rowsIn(segment); i < count; i++) {
+                values.get(row);
+                if (row[0] >= from && row[0] < to) {
+                    visitor.accept(row);
+                }
+            }
+        }
+    }
+
+    // Count, minimum, maximum and sum of one column over the rows with keys in [from, to)
+    public Range range(int column, double from, double to) throws IOException {
+        Range range = new Range();
+        int columns = header.columns.length;
+        for (int segment = firstSegment(from); segment < segments && firstKeys[segment] < to; segment++) {
+            if (firstKeys[segment] >= from && lastKeys[segment] < to) {
+                range.add(rowsIn(segment), min[segment][column], max[segment][column], sum[segment][column]);
+                continue;
+            }
+            DoubleBuffer values = readSegment(segment);
+            for (int i = 0, count = rowsIn(segment); i < count; i++) {
+                double key = values.get(i * columns);
+                if (key >= from && key < to) {
+                    double value = values.get(i * columns + column);
+                    range.add(1, value, value, value);
+                }
+            }
+        }
+        return range;
+    }
+
+    // [from, to) split into equal buckets, each with its count, minimum, maximum and mean, e.g. a
+    // year of one-minute steps as 365 daily ranges for a chart
+    public Range[] downsample(int column, double from, double to, int buckets) throws IOException {
+        Range[] ranges = new Range[buckets];
+        double width = (to - from) / buckets;
+        for (int i = 0; i < buckets; i++) {
+            ranges[i] = range(column, from + i * width, i == buckets - 1 ? to : from + (i + 1) * width);
+        }
+        return ranges;
+    }
+
+    // First segment that can hold a key >= from: binary search of the sparse index
+    private int firstSegment(double from) {
+        int low = 0, high = segments - 1, found = segments;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (lastKeys[middle] >= from) {
+                found = middle;
+                high = middle - 1;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return found;
+    }
+
+    private int rowsIn(int segment) {
+        return segment == segments - 1 ? lastSegmentRows : header.segmentRows;
+    }
+
+    private long segmentStart(int segment) {
+        return header.bytes + segment * header.segmentBytes();
+    }
+
+    private DoubleBuffer readSegment(int segment) throws IOException {
+        if (segment != bufferedSegment) {
+            segmentBuffer.clear().limit(rowsIn(segment) * header.rowBytes());
+            RunLogFormat.readFully(channel, segmentBuffer, segmentStart(segment));
+            segmentBuffer.flip();
+            bufferedSegment = segment;
+            segmentsRead++;
+        }
+        return segmentBuffer.asDoubleBuffer();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Statistics of one column over a range of rows
+    public static class Range {
+        private long count;
+        private double min = Double.NaN;
+        private double max = Double.NaN;
+        private double sum;
+
+        void add(long rows, double rowsMin, double rowsMax, double rowsSum) {
+            min = count == 0 ? rowsMin : Math.min(min, rowsMin);
+            max = count == 0 ? rowsMax : Math.max(max, rowsMax);
+            count += rows;
+            sum += rowsSum;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        // NaN for an empty range
+        public double getMin() {
+            return min;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        public double getSum() {
+            return sum;
+        }
+
+        public double getMean() {
+            return count > 0 ? sum / count : Double.NaN;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows, min %.3f, max %.3f, sum %.3f, mean %.3f", count, min, max, sum, getMean());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.out.println("Usage: RunLogReader <run.log> <column> <from> <to> [buckets]");
+            return;
+        }
+        long start = System.nanoTime();
+        try (RunLogReader reader = new RunLogReader(Paths.get(args[0]))) {
+            int column = reader.column(args[1]);
+            double from = Double.parseDouble(args[2]), to = Double.parseDouble(args[3]);
+            System.out.printf("%s: %d rows in %d segments, keys %.0f..%.0f%n", args[0], reader.getRows(), reader.getSegments(),
+                    reader.firstKey(), reader.lastKey());
+            System.out.println(args[1] + " over [" + args[2] + ", " + args[3] + "): " + reader.range(column, from, to));
+            if (args.length > 4) {
+                Range[] buckets = reader.downsample(column, from, to, Integer.parseInt(args[4]));
+                for (int i = 0; i < buckets.length; i++) {
+                    System.out.println("  " + i + ": " + buckets[i]);
+                }
+            }
+            System.out.printf("Read %d segment(s) in %.2f ms%n", reader.getSegmentsRead(), (System.nanoTime() - start) / 1e6);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.singlejade;
+
+// Virtual simulation clock counting steps of a StepLength. In real-time mode every step is paced
+// by a TickerBehaviour, in fast-forward mode the clock moves to the next step as soon as the
+// previous one is handled. "hours=8760" is the horizon whatever the step length.
+public class SimulationClock {
+    public enum Mode { REALTIME, FASTFORWARD }
+
+    private final Mode mode;
+    private final int horizon;       // Number of steps to simulate
+    private final long tickMillis;   // Wall-clock period per step in real-time mode
+    private final StepLength stepLength;
+    private int step;
+    private int firstStep;  // Where this run started, later than 0 when resumed from a checkpoint
+    private long startNanos;
+    private long endNanos;
+
+    public SimulationClock(Mode mode, int horizon, long tickMillis) {
+        this(mode, horizon, tickMillis, StepLength.HOURLY);
+    }
+
+    public SimulationClock(Mode mode, int horizon, long tickMillis, StepLength stepLength) {
+        if (horizon <= 0) {
+            throw new IllegalArgumentException("Simulation horizon must be positive: " + horizon);
+        }
+        this.mode = mode;
+        this.horizon = horizon;
+        this.tickMillis = tickMillis;
+        this.stepLength = stepLength;
+    }
+
+    public static SimulationClock fromConfig(SimulationConfig config) {
+        Mode mode = config.getBoolean("fastforward", false)
+                ? Mode.FASTFORWARD
+                : Mode.valueOf(config.getString("clock", "realtime").toUpperCase());
+        StepLength stepLength = StepLength.fromConfig(config);
+        return new SimulationClock(mode, stepLength.steps(config.getInt("hours", 24)), config.getLong("tickMillis", 1000), stepLength);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getHorizon() {
+        return horizon;
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    public StepLength getStepLength() {
+        return stepLength;
+    }
+
+    public int currentStep() {
+        return step;
+    }
+
+    public boolean hasNext() {
+        return step < horizon;
+    }
+
+    // Continues a checkpointed run at the given step; call before start()
+    public void resumeAt(int step) {
+        if (step < 0 || step > horizon) {
+            throw new IllegalArgumentException("Step " + step + " is outside the horizon of " + horizon + " steps");
+        }
+        this.step = step;
+        this.firstStep = step;
+    }
+
+    public void start() {
+        startNanos = System.nanoTime();
+    }
+
+    public void advance() {
+        step++;
+        if (step == horizon) {
+            endNanos = System.nanoTime();
+        }
+    }
+
+    public double elapsedSeconds() {
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return (end - startNanos) / 1e9;
+    }
+
+    public String summary() {
+        double seconds = elapsedSeconds();
+        double rate = seconds > 0 ? (step - firstStep) / seconds : 0;
+        return String.format("Simulated %d of %d steps of %s in %.3f s (%.1f steps/s, %s clock)%s",
+                step, horizon, stepLength, seconds, rate, mode.name().toLowerCase(), firstStep > 0 ? ", resumed at step " + firstStep : "");
+    }
+}
@@ -0,0 +1,84 @@
+package com.singlejade;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Simple key=value settings taken from agent arguments or the command line,
+// e.g. "clock=fastforward hours=8760"
+public class SimulationConfig {
+    private final Map<String, String> values = new LinkedHashMap<>();
+
+    public SimulationConfig() {
+        // Empty config, every lookup falls back to its default
+    }
+
+    public static SimulationConfig fromArguments(Object[] args) {
+        SimulationConfig config = new SimulationConfig();
+        if (args != null) {
+            for (Object arg : args) {
+                if (arg != null) {
+                    config.parse(arg.toString());
+                }
+            }
+        }
+        return config;
+    }
+
+    private void parse(String arg) {
+        String entry = arg.startsWith("--") ? arg.substring(2) : arg;
+        int separator = entry.indexOf('=');
+        if (separator > 0) {
+            values.put(entry.substring(0, separator).trim(), entry.substring(separator + 1).trim());
+        } else if (!entry.isEmpty()) {
+            values.put(entry.trim(), "true");  // Bare flags such as "--fastforward"
+        }
+    }
+
+    public SimulationConfig set(String key, String value) {
+        values.put(key, value);
+        return this;
+    }
+
+    public boolean has(String key) {
+        return values.containsKey(key);
+    }
+
+    public String getString(String key, String defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = values.get(key);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = values.get(key);
+        return value != null ? Long.parseLong(value) : defaultValue;
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        String value = values.get(key);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = values.get(key);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+
+    // Converts the settings back into agent arguments so they can be forwarded to other agents
+    public Object[] toArguments() {
+        Object[] args = new Object[values.size()];
+        int i = 0;
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            args[i++] = entry.getKey() + "=" + entry.getValue();
+        }
+        return args;
+    }
+
+    @Override
+    public String toString() {
+        return values.toString();
+    }
+}
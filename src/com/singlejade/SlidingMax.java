@@ -0,0 +1,53 @@
+package com.singlejade;
+
+// Largest of the last `window` values, in O(1) amortised time per value. Keeps a monotonic deque of
+// the values that can still become the largest, oldest and largest first, in two ring arrays sized
+// to the window, so adding a value never allocates.
+public class SlidingMax {
+    private final int window;
+    private final double[] values;
+    private final long[] positions;  // Position of each value in the stream, to tell when it leaves the window
+    private int head;
+    private int size;
+    private long added;
+
+    public SlidingMax(int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window must be positive: " + window);
+        }
+        this.window = window;
+        this.values = new double[window];
+        this.positions = new long[window];
+    }
+
+    public void add(double value) {
+        // The oldest value leaves once the new one would push it out of the window
+        if (size > 0 && positions[head] <= added - window) {
+            head = (head + 1) % window;
+            size--;
+        }
+        // Values no larger than the new one can never be the largest again
+        while (size > 0 && values[(head + size - 1) % window] <= value) {
+            size--;
+        }
+        int tail = (head + size) % window;
+        values[tail] = value;
+        positions[tail] = added++;
+        size++;
+    }
+
+    // 0 before the first value
+    public double max() {
+        return size > 0 ? values[head] : 0;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+        added = 0;
+    }
+}
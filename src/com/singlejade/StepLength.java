@@ -0,0 +1,72 @@
+package com.singlejade;
+
+// Length of one simulation step, "stepMinutes=15" (default 60, one hour). Everything runs in steps:
+// profiles are resampled to the step, every energy value passed between agents is kWh per step, and
+// power limits given in kW become kWh per step. A step divides an hour evenly, so hourly settings
+// such as "hours=8760" or the tariff's 24 prices still line up with whole steps.
+public class StepLength {
+    public static final StepLength HOURLY = new StepLength(60);
+
+    private final int minutes;
+
+    public StepLength(int minutes) {
+        if (minutes <= 0 || 60 % minutes != 0) {
+            throw new IllegalArgumentException("A step must divide an hour evenly, got " + minutes + " minutes");
+        }
+        this.minutes = minutes;
+    }
+
+    public static StepLength fromConfig(SimulationConfig config) {
+        int minutes = config.getInt("stepMinutes", 60);
+        return minutes == 60 ? HOURLY : new StepLength(minutes);
+    }
+
+    public int getMinutes() {
+        return minutes;
+    }
+
+    public int stepsPerHour() {
+        return 60 / minutes;
+    }
+
+    public int stepsPerDay() {
+        return 24 * stepsPerHour();
+    }
+
+    public double hours() {
+        return minutes / 60.0;
+    }
+
+    public int steps(int hours) {
+        return hours * stepsPerHour();
+    }
+
+    // Hour since the start of the run that a step falls in
+    public int hourOf(int step) {
+        return step / stepsPerHour();
+    }
+
+    // kWh per step for a constant power in kW
+    public double energy(double kilowatts) {
+        return kilowatts * hours();
+    }
+
+    // Mean power in kW over a step that moved the given kWh
+    public double power(double kilowattHours) {
+        return kilowattHours / hours();
+    }
+
+    // First column of the result file: the hour for hourly steps, the minute since the start otherwise
+    public String columnName() {
+        return minutes == 60 ? "Hour" : "Minute";
+    }
+
+    public long columnValue(int step) {
+        return minutes == 60 ? step : (long) step * minutes;
+    }
+
+    @Override
+    public String toString() {
+        return minutes + " min";
+    }
+}
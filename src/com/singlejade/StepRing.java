@@ -0,0 +1,88 @@
+package com.singlejade;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lock-free single-producer, single-consumer ring of step samples: a step number and a fixed number
+// of values per slot, in flat arrays allocated once. The simulation thread offers one sample per step
+// and never waits; when the reader has fallen a whole ring behind, the sample is dropped and counted
+// instead. Each side publishes its index with a release store (lazySet) and keeps a cached copy of the
+// other side's index, so a sample normally costs no volatile read at all.
+public class StepRing {
+    private final int channels;
+    private final int mask;
+    private final long[] steps;
+    private final double[] values;
+    private final AtomicLong head = new AtomicLong();  // Next slot to write, advanced by the producer
+    private final AtomicLong tail = new AtomicLong();  // Next slot to read, advanced by the consumer
+    private long written;     // Producer's own copy of head
+    private long cachedTail;  // Producer's view of tail
+    private long read;        // Consumer's own copy of tail
+    private long cachedHead;  // Consumer's view of head
+    private final double[] sample;  // Consumer's copy of the sample being handed out
+    private volatile long dropped;
+
+    // A consumer of drained samples; the values array is reused for every sample
+    public interface Reader {
+        void sample(long step, double[] values);
+    }
+
+    // Capacity is rounded up to a power of two
+    public StepRing(int capacity, int channels) {
+        if (capacity <= 0 || channels <= 0) {
+            throw new IllegalArgumentException("Ring needs a positive capacity and channels: " + capacity + ", " + channels);
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.channels = channels;
+        this.mask = size - 1;
+        this.steps = new long[size];
+        this.values = new double[size * channels];
+        this.sample = new double[channels];
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    // Producer side: copies the sample in, false (counted as dropped) when the ring is full
+    public boolean offer(long step, double[] row) {
+        long next = written;
+        if (next - cachedTail > mask) {
+            cachedTail = tail.get();
+            if (next - cachedTail > mask) {
+                dropped++;
+                return false;
+            }
+        }
+        int slot = (int) next & mask;
+        steps[slot] = step;
+        System.arraycopy(row, 0, values, slot * channels, channels);
+        written = next + 1;
+        head.lazySet(written);
+        return true;
+    }
+
+    // Consumer side: hands up to max samples to the reader, oldest first, and returns how many
+    public int drain(Reader reader, int max) {
+        long next = read;
+        if (next == cachedHead) {
+            cachedHead = head.get();
+        }
+        int count = (int) Math.min(max, cachedHead - next);
+        for (int i = 0; i < count; i++) {
+            int slot = (int) (next + i) & mask;
+            System.arraycopy(values, slot * channels, sample, 0, channels);
+            reader.sample(steps[slot], sample);
+        }
+        read = next + count;
+        tail.lazySet(read);
+        return count;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+}
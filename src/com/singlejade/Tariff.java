@@ -0,0 +1,53 @@
+package com.singlejade;
+
+import java.util.Arrays;
+
+// Time-of-use grid prices: an import price for each hour of the day and a flat export price.
+// e.g. "tariff=0.15,0.15,...(24 values) exportPrice=0.05". Prices are per kWh and looked up by
+// simulation step, so every step of an hour pays that hour's price.
+public class Tariff {
+    // Off-peak at night, shoulder through the day, peak in the evening
+    private static final double[] DEFAULT_IMPORT_PRICES = {
+            0.15, 0.15, 0.15, 0.15, 0.15, 0.15, 0.15,
+            0.25, 0.25, 0.25, 0.25, 0.25, 0.25, 0.25, 0.25, 0.25,
+            0.45, 0.45, 0.45, 0.45, 0.45,
+            0.25, 0.25, 0.25
+    };
+
+    private final double[] importPrices;
+    private final double exportPrice;
+    private final StepLength stepLength;
+
+    public Tariff(double[] importPrices, double exportPrice) {
+        this(importPrices, exportPrice, StepLength.HOURLY);
+    }
+
+    public Tariff(double[] importPrices, double exportPrice, StepLength stepLength) {
+        if (importPrices.length != 24) {
+            throw new IllegalArgumentException("A tariff needs 24 hourly import prices, got " + importPrices.length);
+        }
+        this.importPrices = importPrices.clone();
+        this.exportPrice = exportPrice;
+        this.stepLength = stepLength;
+    }
+
+    public static Tariff fromConfig(SimulationConfig config) {
+        double[] prices = DEFAULT_IMPORT_PRICES;
+        if (config.has("tariff")) {
+            prices = Arrays.stream(config.getString("tariff", "").split(",")).mapToDouble(p -> Double.parseDouble(p.trim())).toArray();
+        }
+        return new Tariff(prices, config.getDouble("exportPrice", 0.05), StepLength.fromConfig(config));
+    }
+
+    public double importPrice(int step) {
+        return importPrices[stepLength.hourOf(step) % 24];
+    }
+
+    public double exportPrice() {
+        return exportPrice;
+    }
+
+    public double meanImportPrice() {
+        return Arrays.stream(importPrices).average().orElse(0);
+    }
+}
@@ -0,0 +1,69 @@
+package com.singlejade;
+
+// How long CentralAgent waits for other agents. A request gets "requestTimeoutMs", but never more
+// than what is left of the step's "tickDeadlineMs"; once the step is out of time, only replies that
+// are already queued are taken. Range requests that prefetch a block of steps, checkpoints and
+// restores get "rangeTimeoutMs" and do not count against the step.
+//
+// The tick deadline defaults to the ticker period in real-time mode and to none when fast-forwarding.
+public class TickDeadline {
+    private final long requestMillis;
+    private final long rangeMillis;
+    private final long tickMillis;  // 0 without a tick deadline
+    private long tickEndNanos = Long.MAX_VALUE;
+    private boolean expired;
+
+    public TickDeadline(long requestMillis, long rangeMillis, long tickMillis) {
+        if (requestMillis <= 0 || rangeMillis <= 0 || tickMillis < 0) {
+            throw new IllegalArgumentException("Timeouts must be positive: request " + requestMillis + " ms, range "
+                    + rangeMillis + " ms, tick " + tickMillis + " ms");
+        }
+        this.requestMillis = requestMillis;
+        this.rangeMillis = rangeMillis;
+        this.tickMillis = tickMillis;
+    }
+
+    public static TickDeadline fromConfig(SimulationConfig config, SimulationClock clock) {
+        long tickDefault = clock.getMode() == SimulationClock.Mode.REALTIME ? clock.getTickMillis() : 0;
+        return new TickDeadline(config.getLong("requestTimeoutMs", 2000), config.getLong("rangeTimeoutMs", 30000),
+                config.getLong("tickDeadlineMs", tickDefault));
+    }
+
+    public void startTick() {
+        tickEndNanos = tickMillis > 0 ? System.nanoTime() + tickMillis * 1_000_000L : Long.MAX_VALUE;
+        expired = false;
+    }
+
+    // Time spent on range requests, which do not count against the step
+    public void exclude(long nanos) {
+        if (tickEndNanos != Long.MAX_VALUE) {
+            tickEndNanos += nanos;
+        }
+    }
+
+    // Milliseconds to wait for the reply to a request sent now, 0 when the step is out of time
+    public long requestWait() {
+        if (tickEndNanos == Long.MAX_VALUE) {
+            return requestMillis;
+        }
+        long left = (tickEndNanos - System.nanoTime()) / 1_000_000L;
+        if (left <= 0) {
+            expired = true;
+            return 0;
+        }
+        return Math.min(requestMillis, left);
+    }
+
+    public long rangeWait() {
+        return rangeMillis;
+    }
+
+    // True once a request of this step found the step out of time
+    public boolean isExpired() {
+        return expired;
+    }
+
+    public String describe() {
+        return String.format("request %d ms, range %d ms, tick %s", requestMillis, rangeMillis, tickMillis > 0 ? tickMillis + " ms" : "unbounded");
+    }
+}
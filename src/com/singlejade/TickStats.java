@@ -0,0 +1,67 @@
+package com.singlejade;
+
+// Duration of every simulated hour, how often it took longer than the ticker period, and how many
+// hours were degraded, i.e. ran on fallback values because an agent missed its deadline
+public class TickStats implements TickStatsMBean {
+    private final long periodMillis;  // 0 when fast-forwarding, so nothing can overrun
+    private final long periodNanos;
+    private final LatencyHistogram durations = new LatencyHistogram();
+    private long overruns;
+    private long degraded;
+
+    public TickStats(long periodMillis) {
+        this.periodMillis = periodMillis;
+        this.periodNanos = periodMillis * 1_000_000L;
+    }
+
+    public void record(long nanos) {
+        durations.record(nanos);
+        if (periodNanos > 0 && nanos > periodNanos) {
+            overruns++;
+        }
+    }
+
+    public void recordDegraded() {
+        degraded++;
+    }
+
+    @Override
+    public long getTicks() {
+        return durations.getCount();
+    }
+
+    @Override
+    public long getPeriodMillis() {
+        return periodMillis;
+    }
+
+    @Override
+    public long getOverruns() {
+        return overruns;
+    }
+
+    @Override
+    public long getDegraded() {
+        return degraded;
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return durations.getMean() / 1e3;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return durations.percentile(0.99) / 1e3;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return durations.getMax() / 1e3;
+    }
+
+    public String summary() {
+        return String.format("%-17s count=%d overruns=%d (period %d ms) degraded=%d mean=%.1f us p99=%.1f us max=%.1f us",
+                "tick", getTicks(), overruns, periodMillis, degraded, getMeanMicros(), getP99Micros(), getMaxMicros());
+    }
+}
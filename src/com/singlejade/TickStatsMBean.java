@@ -0,0 +1,18 @@
+package com.singlejade;
+
+// JMX view of CentralAgent's simulation ticks, durations in microseconds
+public interface TickStatsMBean {
+    long getTicks();
+
+    long getPeriodMillis();
+
+    long getOverruns();
+
+    long getDegraded();
+
+    double getMeanMicros();
+
+    double getP99Micros();
+
+    double getMaxMicros();
+}
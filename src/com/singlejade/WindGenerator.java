@@ -1,19 +1,16 @@
 package com.singlejade;
 
-import com.opencsv.CSVReader;
-import com.opencsv.exceptions.CsvException;
 import jade.core.Agent;
 import jade.core.behaviours.CyclicBehaviour;
 import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
 
-import java.io.FileReader;
-import java.io.IOException;
-import java.util.List;
-
 public class WindGenerator extends Agent {
-    private double[] hourlyGeneration;
+    private EnergyProfile profile;  // Shared, read-only profile
+    private double scale = 1.0;     // Share of the profile this unit represents, e.g. one plant of many
     private double totalGenerationUsed;
+    private int countedSteps;  // Steps before this are in totalGenerationUsed
+    private final MessageCodec codec = new MessageCodec(true);  // Replies follow the format of each request
 
     public WindGenerator() {
         // No-argument constructor
@@ -21,9 +18,14 @@ public class WindGenerator extends Agent {
 
     @Override
     protected void setup() {
-        System.out.println("WindGenerator " + getLocalName() + " initialized.");
-        loadDataFromCSV("src/com/singlejade/energy_data.csv");
+        Log.info("WindGenerator {} initialized.", getLocalName());
+        // Profile file from the agent arguments, either the CSV or a converted ProfileStore (.bin),
+        // parsed once, resampled to the simulation step and shared with the other agents
+        SimulationConfig config = SimulationConfig.fromArguments(getArguments());
+        profile = EnergyProfile.load(config.getString("profile", EnergyProfile.DEFAULT_PROFILE), StepLength.fromConfig(config));
+        scale = config.getDouble("scale", 1.0);
         totalGenerationUsed = 0;
+        countedSteps = 0;
 
         // Add behavior to respond to requests for wind generation and surplus values
         addBehaviour(new CyclicBehaviour() {
@@ -31,30 +33,61 @@ public class WindGenerator extends Agent {
             public void action() {
                 ACLMessage msg = receive(MessageTemplate.MatchPerformative(ACLMessage.REQUEST));
                 if (msg != null) {
-                    String content = msg.getContent();
+                    ACLMessage reply = msg.createReply();
+                    MessageCodec.Opcode command = codec.decode(msg) ? codec.opcode() : null;
+
+                    int step = 0;
+                    if (command == MessageCodec.Opcode.GET_ENERGY_RANGE) {
+                        // Whole range of steps in one binary block; prefetched steps are counted only once
+                        // they are dispatched, which the next GET_ENERGY or SNAPSHOT_STATE step tells
+                        int firstStep = codec.step(), count = codec.lastStep() - firstStep + 1;
+                        reply.setPerformative(ACLMessage.PROPOSE);
+                        reply.setByteSequenceContent(ProfileBlock.encode(firstStep, count, WindGenerator.this::getGenerationAtStep));
+                        if (Log.isDebug()) {
+                            Log.debug("Wind generation for steps {}..{} sent.", firstStep, codec.lastStep());
+                        }
+                        send(reply);
 
-                    int hour = 0;
-                    if (content.startsWith("getEnergyAtHour")) {
-                        hour = Integer.parseInt(content.split(":")[1]);
-                        double windValue = getGenerationAtHour(hour);
-                        totalGenerationUsed += windValue;
+                    } else if (command == MessageCodec.Opcode.GET_ENERGY) {
+                        step = codec.step();
+                        double windValue = getGenerationAtStep(step);
+                        countUsedThrough(step + 1);
 
-                        ACLMessage reply = msg.createReply();
                         reply.setPerformative(ACLMessage.PROPOSE);
-                        reply.setContent(String.valueOf(windValue));
-                        System.out.println("Wind generation for hour " + hour + " is " + windValue + " kWh.");
+                        codec.encodeReply(reply, windValue);
+                        if (Log.isDebug()) {
+                            Log.debug("Wind generation for step {} is {} kWh.", step, windValue);
+                        }
                         send(reply);
 
-                    } else if (content.equals("getSurplus")) {
-                        double surplus = calculateSurplus(hour);
-                        ACLMessage reply = msg.createReply();
+                    } else if (command == MessageCodec.Opcode.GET_SURPLUS) {
+                        double surplus = calculateSurplus(step);
                         reply.setPerformative(ACLMessage.INFORM);
-                        reply.setContent(String.valueOf(surplus));
-                        System.out.println("Surplus energy available from wind: " + surplus + " kWh.");
+                        codec.encodeReply(reply, surplus);
+                        if (Log.isDebug()) {
+                            Log.debug("Surplus energy available from wind: {} kWh.", surplus);
+                        }
+                        send(reply);
+
+                    } else if (command == MessageCodec.Opcode.SNAPSHOT_STATE) {
+                        countUsedThrough(codec.step());  // Checkpoints are taken before the given step
+                        reply.setPerformative(ACLMessage.INFORM);
+                        codec.encodeVectorReply(reply, new double[] {totalGenerationUsed, countedSteps});
+                        send(reply);
+
+                    } else if (command == MessageCodec.Opcode.RESTORE_STATE && codec.vector().length == 2) {
+                        totalGenerationUsed = codec.vector()[0];
+                        countedSteps = (int) codec.vector()[1];
+                        reply.setPerformative(ACLMessage.CONFIRM);
+                        codec.encodeReply(reply, totalGenerationUsed);
+                        Log.info("Restored wind generation used: {} kWh.", totalGenerationUsed);
                         send(reply);
 
                     } else {
-                        System.out.println("Received unknown request: " + content);
+                        reply.setPerformative(ACLMessage.NOT_UNDERSTOOD);
+                        reply.setContent("Invalid command");
+                        send(reply);
+                        Log.warn("Received unknown request: {}", msg.hasByteSequenceContent() ? "binary " + command : msg.getContent());
                     }
                 } else {
                     block();
@@ -63,27 +96,21 @@ public class WindGenerator extends Agent {
         });
     }
 
-    private void loadDataFromCSV(String fileName) {
-        try (CSVReader reader = new CSVReader(new FileReader(fileName))) {
-            List<String[]> data = reader.readAll();
-            hourlyGeneration = new double[24];
-            for (int i = 1; i < data.size(); i++) {  // Skip header row
-                hourlyGeneration[i - 1] = Double.parseDouble(data.get(i)[3]);
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        } catch (CsvException e) {
-            throw new RuntimeException(e);
+    // Adds the generation of every step before nextStep that is not counted yet, so a step requested
+    // again or prefetched in overlapping ranges is counted only once
+    private void countUsedThrough(int nextStep) {
+        for (; countedSteps < nextStep; countedSteps++) {
+            totalGenerationUsed += getGenerationAtStep(countedSteps);
         }
     }
 
-    public double getGenerationAtHour(int hour) {
-        return hourlyGeneration[hour];
+    public double getGenerationAtStep(int step) {
+        return profile.getWind(step) * scale;
     }
 
 
-    private double calculateSurplus(int currentHour) {
-        double generatedEnergy = getGenerationAtHour(currentHour);
+    private double calculateSurplus(int currentStep) {
+        double generatedEnergy = getGenerationAtStep(currentStep);
         double surplus = generatedEnergy - totalGenerationUsed;
         totalGenerationUsed = 0;  // Reset after calculating surplus to avoid compounding
         return Math.max(surplus, 0); // Ensure surplus is not negative
@@ -0,0 +1,138 @@
+package com.singlejade;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Merit order and SOC limits of the dispatch rules, run directly without agents
+class DispatchKernelTest {
+    private static final double EPSILON = 1e-9;
+
+    private final DispatchKernel kernel = new DispatchKernel(20, 90);
+    private final double[] result = new double[DispatchKernel.RESULT_SIZE];
+
+    @Test
+    void solarCoversLoadFirst() {
+        BatteryState battery = new BatteryState(100, 50);
+        kernel.step(30, 40, 25, battery, result);
+
+        assertEquals(30, result[DispatchKernel.SOLAR_USED], EPSILON);
+        assertEquals(0, result[DispatchKernel.WIND_USED], EPSILON);  // Not consulted once solar covers the load
+        assertEquals(0, result[DispatchKernel.BATTERY_DISCHARGED], EPSILON);
+        assertEquals(0, result[DispatchKernel.GRID_IMPORT], EPSILON);
+        assertEquals(10, result[DispatchKernel.SOLAR_SURPLUS], EPSILON);
+    }
+
+    @Test
+    void windThenBatteryThenGrid() {
+        BatteryState battery = new BatteryState(100, 50);
+        kernel.step(100, 20, 30, battery, result);
+
+        assertEquals(20, result[DispatchKernel.SOLAR_USED], EPSILON);
+        assertEquals(30, result[DispatchKernel.WIND_USED], EPSILON);
+        assertEquals(30, result[DispatchKernel.BATTERY_DISCHARGED], EPSILON);  // Down to 20% of 100 kWh
+        assertEquals(20, result[DispatchKernel.GRID_IMPORT], EPSILON);
+        assertEquals(0, result[DispatchKernel.GRID_EXPORT], EPSILON);
+        assertEquals(20, battery.charge, EPSILON);
+    }
+
+    @Test
+    void windLeftOverCountsAsSurplus() {
+        BatteryState battery = new BatteryState(100, 90);
+        kernel.step(50, 20, 40, battery, result);
+
+        assertEquals(30, result[DispatchKernel.WIND_USED], EPSILON);
+        assertEquals(10, result[DispatchKernel.WIND_SURPLUS], EPSILON);
+        assertEquals(0, result[DispatchKernel.BATTERY_CHARGED], EPSILON);  // Already at the ceiling
+        assertEquals(10, result[DispatchKernel.GRID_EXPORT], EPSILON);
+    }
+
+    @Test
+    void surplusChargesBatteryUpToMaxSocThenExports() {
+        BatteryState battery = new BatteryState(100, 80);
+        kernel.step(10, 40, 0, battery, result);
+
+        assertEquals(10, result[DispatchKernel.BATTERY_CHARGED], EPSILON);  // 80 -> 90 kWh
+        assertEquals(20, result[DispatchKernel.GRID_EXPORT], EPSILON);
+        assertEquals(90, battery.getSOC(), EPSILON);
+    }
+
+    @Test
+    void surplusBelowSpaceIsAllStored() {
+        BatteryState battery = new BatteryState(100, 30);
+        kernel.step(10, 25, 0, battery, result);
+
+        assertEquals(15, result[DispatchKernel.BATTERY_CHARGED], EPSILON);
+        assertEquals(0, result[DispatchKernel.GRID_EXPORT], EPSILON);
+        assertEquals(45, battery.charge, EPSILON);
+    }
+
+    @Test
+    void batteryAtMinSocGivesNothing() {
+        BatteryState battery = new BatteryState(100, 20);
+        kernel.step(40, 0, 0, battery, result);
+
+        assertEquals(0, result[DispatchKernel.BATTERY_DISCHARGED], EPSILON);
+        assertEquals(40, result[DispatchKernel.GRID_IMPORT], EPSILON);
+        assertEquals(20, battery.charge, EPSILON);
+    }
+
+    @Test
+    void batteryBelowMinSocGivesNothing() {
+        BatteryState battery = new BatteryState(100, 10);
+        assertEquals(0, kernel.availableForDischarge(battery), EPSILON);
+        kernel.step(40, 0, 0, battery, result);
+
+        assertEquals(0, result[DispatchKernel.BATTERY_DISCHARGED], EPSILON);
+        assertEquals(40, result[DispatchKernel.GRID_IMPORT], EPSILON);
+    }
+
+    @Test
+    void batteryAboveMaxSocTakesNothing() {
+        BatteryState battery = new BatteryState(100, 95);
+        assertEquals(0, kernel.spaceForCharge(battery), EPSILON);
+        kernel.step(0, 30, 0, battery, result);
+
+        assertEquals(0, result[DispatchKernel.BATTERY_CHARGED], EPSILON);
+        assertEquals(30, result[DispatchKernel.GRID_EXPORT], EPSILON);
+        assertEquals(95, battery.charge, EPSILON);
+    }
+
+    @Test
+    void equalLimitsKeepTheBatteryIdle() {
+        DispatchKernel fixed = new DispatchKernel(50, 50);
+        BatteryState battery = new BatteryState(100, 50);
+        fixed.step(30, 0, 0, battery, result);
+        assertEquals(0, result[DispatchKernel.BATTERY_DISCHARGED], EPSILON);
+        fixed.step(0, 30, 0, battery, result);
+        assertEquals(0, result[DispatchKernel.BATTERY_CHARGED], EPSILON);
+        assertEquals(50, battery.charge, EPSILON);
+    }
+
+    @Test
+    void plannedLimitsCapTheBattery() {
+        BatteryState battery = new BatteryState(100, 50);
+        kernel.step(40, 0, 0, battery, 5, Double.MAX_VALUE, result);
+        assertEquals(5, result[DispatchKernel.BATTERY_DISCHARGED], EPSILON);
+        assertEquals(35, result[DispatchKernel.GRID_IMPORT], EPSILON);
+
+        kernel.step(0, 40, 0, battery, Double.MAX_VALUE, 8, result);
+        assertEquals(8, result[DispatchKernel.BATTERY_CHARGED], EPSILON);
+        assertEquals(32, result[DispatchKernel.GRID_EXPORT], EPSILON);
+    }
+
+    @Test
+    void rejectsInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new DispatchKernel(60, 40));
+        assertThrows(IllegalArgumentException.class, () -> new DispatchKernel(-1, 90));
+        assertThrows(IllegalArgumentException.class, () -> new DispatchKernel(20, 101));
+    }
+
+    @Test
+    void netDemandMatchesTheMeritOrder() {
+        assertEquals(-10, DispatchKernel.netDemand(30, 40, 25), EPSILON);  // Wind ignored when solar suffices
+        assertEquals(50, DispatchKernel.netDemand(100, 20, 30), EPSILON);
+        assertEquals(-10, DispatchKernel.netDemand(50, 20, 40), EPSILON);
+    }
+}
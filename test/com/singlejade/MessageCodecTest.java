@@ -0,0 +1,72 @@
+package com.singlejade;
+
+import jade.lang.acl.ACLMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Layout checks of the state opcodes: content that does not fit its own layout is rejected instead of
+// being read as a scalar command with whatever vector or state an earlier message left behind
+class MessageCodecTest {
+    private final MessageCodec codec = new MessageCodec(true);
+
+    @Test
+    void vectorRoundTrips() {
+        ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
+        codec.encodeVector(msg, MessageCodec.Opcode.RESTORE_STATE, new double[] {1, 2, 3});
+
+        assertTrue(codec.decode(msg));
+        assertEquals(MessageCodec.Opcode.RESTORE_STATE, codec.opcode());
+        assertArrayEquals(new double[] {1, 2, 3}, codec.vector());
+    }
+
+    @Test
+    void restoreWithWrongLengthIsRejected() {
+        ACLMessage valid = new ACLMessage(ACLMessage.REQUEST);
+        codec.encodeVector(valid, MessageCodec.Opcode.RESTORE_STATE, new double[] {1, 2, 3});
+        byte[] content = valid.getByteSequenceContent();
+
+        ACLMessage truncated = new ACLMessage(ACLMessage.REQUEST);
+        truncated.setByteSequenceContent(Arrays.copyOf(content, content.length - 8));  // Still longer than a scalar
+        assertFalse(codec.decode(truncated));
+        assertNull(codec.opcode());
+
+        ACLMessage padded = new ACLMessage(ACLMessage.REQUEST);
+        padded.setByteSequenceContent(Arrays.copyOf(content, content.length + 8));
+        assertFalse(codec.decode(padded));
+    }
+
+    @Test
+    void shortBatteryStateIsRejected() {
+        ACLMessage valid = new ACLMessage(ACLMessage.INFORM);
+        codec.encodeState(valid, true, 7, 500, 1000, 50, 20, 90);
+        assertTrue(codec.decode(valid));
+        assertEquals(7, codec.stateVersion());
+
+        ACLMessage truncated = new ACLMessage(ACLMessage.INFORM);
+        truncated.setByteSequenceContent(Arrays.copyOf(valid.getByteSequenceContent(), MessageCodec.SCALAR_BYTES));
+        assertFalse(codec.decode(truncated));
+    }
+
+    @Test
+    void malformedTextStateKeepsThePreviousValues() {
+        ACLMessage valid = new ACLMessage(ACLMessage.REQUEST);
+        valid.setContent("restore:1.0:2.0");
+        assertTrue(codec.decode(valid));
+
+        ACLMessage malformed = new ACLMessage(ACLMessage.REQUEST);
+        malformed.setContent("restore:3.0:x");
+        assertFalse(codec.decode(malformed));
+        assertArrayEquals(new double[] {1, 2}, codec.vector());
+
+        ACLMessage shortState = new ACLMessage(ACLMessage.INFORM);
+        shortState.setContent("state:8:500.0:1000.0");
+        assertFalse(codec.decode(shortState));
+    }
+}
@@ -0,0 +1,89 @@
+package com.singlejade;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Cross-checks the sliding-window DP against a brute-force backward induction that scans every
+// reachable level directly, on grids small enough to enumerate
+class RollingHorizonSchedulerTest {
+    private static final double MIN_SOC = 20, MAX_SOC = 90;
+
+    @Test
+    void firstDecisionIsOptimalOnSmallGrids() {
+        Random random = new Random(42);
+        for (int trial = 0; trial < 2000; trial++) {
+            // Export sometimes pays more than imports cost, where a window that reached below the
+            // current level would wrongly favour exporting stored energy during a surplus
+            double[] prices = new double[24];
+            for (int hour = 0; hour < prices.length; hour++) {
+                prices[hour] = 0.1 + random.nextInt(30) / 100.0;
+            }
+            Tariff tariff = new Tariff(prices, random.nextInt(60) / 100.0);
+
+            int states = 2 + random.nextInt(30);
+            int horizon = 1 + random.nextInt(8);
+            double capacity = 100;
+            double[] load = new double[horizon], solar = new double[horizon], wind = new double[horizon];
+            for (int t = 0; t < horizon; t++) {
+                load[t] = random.nextInt(60);
+                solar[t] = random.nextInt(80);
+                wind[t] = random.nextInt(20);
+            }
+            int firstStep = random.nextInt(24);
+            double step = capacity * (MAX_SOC - MIN_SOC) / 100.0 / (states - 1);
+            int current = random.nextInt(states);
+            BatteryState battery = new BatteryState(capacity, capacity * MIN_SOC / 100.0 + current * step);
+
+            RollingHorizonScheduler scheduler = new RollingHorizonScheduler(horizon, states, tariff);
+            double planned = scheduler.plan(load, solar, wind, 0, horizon, firstStep, battery, MIN_SOC, MAX_SOC);
+            int chosen = current + (int) Math.round(planned / step);
+
+            double[] net = new double[horizon];
+            for (int t = 0; t < horizon; t++) {
+                net[t] = DispatchKernel.netDemand(load[t], solar[t], wind[t]);
+            }
+            double[][] value = bruteForce(net, tariff, firstStep, states, step);
+            double best = Double.POSITIVE_INFINITY;
+            for (int next = lowest(net[0], current, step); next <= highest(net[0], current, step, states); next++) {
+                best = Math.min(best, cost(net[0], tariff, firstStep, current, next, step) + value[1][next]);
+            }
+            double chosenCost = cost(net[0], tariff, firstStep, current, chosen, step) + value[1][chosen];
+            assertEquals(best, chosenCost, 1e-6, "trial " + trial + ": " + states + " states, horizon " + horizon);
+        }
+    }
+
+    // value[t][s]: cheapest cost from level s at step t to the window's end, scanning every reachable level
+    private static double[][] bruteForce(double[] net, Tariff tariff, int firstStep, int states, double step) {
+        int horizon = net.length;
+        double[][] value = new double[horizon + 1][states];
+        for (int s = 0; s < states; s++) {
+            value[horizon][s] = -s * step * tariff.meanImportPrice();
+        }
+        for (int t = horizon - 1; t >= 1; t--) {
+            for (int s = 0; s < states; s++) {
+                double best = Double.POSITIVE_INFINITY;
+                for (int next = lowest(net[t], s, step); next <= highest(net[t], s, step, states); next++) {
+                    best = Math.min(best, cost(net[t], tariff, firstStep + t, s, next, step) + value[t + 1][next]);
+                }
+                value[t][s] = best;
+            }
+        }
+        return value;
+    }
+
+    private static int lowest(double net, int s, double step) {
+        return net > 0 ? Math.max(0, s - (int) (net / step)) : s;
+    }
+
+    private static int highest(double net, int s, double step, int states) {
+        return net < 0 ? Math.min(states - 1, s + (int) (-net / step)) : s;
+    }
+
+    private static double cost(double net, Tariff tariff, int stepNumber, int s, int next, double step) {
+        double grid = net + (next - s) * step;
+        return grid > 0 ? grid * tariff.importPrice(stepNumber) : grid * tariff.exportPrice();
+    }
+}